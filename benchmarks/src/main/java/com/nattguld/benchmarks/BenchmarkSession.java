@@ -0,0 +1,33 @@
+package com.nattguld.benchmarks;
+
+import com.nattguld.data.json.JsonReader;
+import com.nattguld.http.SessionData;
+import com.nattguld.http.StorableSession;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public class BenchmarkSession extends StorableSession {
+	
+	/**
+	 * Creates a new benchmark session.
+	 * 
+	 * @param sessionData The session data.
+	 */
+	public BenchmarkSession(SessionData sessionData) {
+		super(sessionData);
+	}
+	
+	/**
+	 * Creates a stored benchmark session.
+	 * 
+	 * @param reader The json reader.
+	 */
+	public BenchmarkSession(JsonReader reader) {
+		super(reader);
+	}
+
+}
@@ -0,0 +1,40 @@
+package com.nattguld.benchmarks;
+
+import com.nattguld.http.DefaultSession;
+import com.nattguld.http.proxies.cfg.ProxyChoice;
+import com.nattguld.tasker.sessions.SessionTask;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public class BenchmarkTask extends SessionTask<DefaultSession> {
+	
+	/**
+	 * Creates a new benchmark task on a direct connection.
+	 * 
+	 * @param session The session.
+	 */
+	public BenchmarkTask(DefaultSession session) {
+		super(session, ProxyChoice.DIRECT, "Benchmark");
+	}
+	
+	/**
+	 * Builds the client and disposes the session and client again, like a task run without steps.
+	 * 
+	 * @return Whether the client was built or not.
+	 */
+	public boolean roundTrip() {
+		boolean built = buildClient();
+		disposeClient();
+		return built;
+	}
+	
+	@Override
+	protected boolean canPrewarm() {
+		return false;
+	}
+
+}
@@ -0,0 +1,92 @@
+package com.nattguld.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.nattguld.http.DefaultSession;
+import com.nattguld.http.cfg.PolicySnapshot;
+import com.nattguld.http.cfg.ProxyPolicy;
+import com.nattguld.tasker.clients.ClientPool;
+
+/**
+ * Measures a session task building it's client, importing the session cookies, and merging them back while disposing the client.
+ * Runs on direct connections so no proxy has to be configured, with and without a client pool.
+ * 
+ * @author randqm
+ *
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientRoundTripBenchmark {
+	
+	/**
+	 * The amount of cookies in the session.
+	 */
+	@Param({"10", "100"})
+	public int cookies;
+	
+	/**
+	 * Whether clients are pooled between runs or not.
+	 */
+	@Param({"false", "true"})
+	public boolean pooled;
+	
+	/**
+	 * The client pool.
+	 */
+	private ClientPool clientPool;
+	
+	/**
+	 * The task.
+	 */
+	private BenchmarkTask task;
+	
+	
+	/**
+	 * Allows direct connections and creates the task.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		PolicySnapshot.update((session, proxy) -> session.setProxyPolicy(ProxyPolicy.ANY));
+		this.clientPool = pooled ? new ClientPool(4, 1L, TimeUnit.MINUTES) : null;
+		this.task = new BenchmarkTask(new DefaultSession(Fixtures.session(1, cookies)));
+		
+		if (pooled) {
+			task.assignClientPool(clientPool);
+		}
+	}
+	
+	/**
+	 * Closes the pooled clients.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (pooled) {
+			clientPool.close();
+		}
+	}
+	
+	@Benchmark
+	public boolean buildAndDispose() {
+		return task.roundTrip();
+	}
+
+}
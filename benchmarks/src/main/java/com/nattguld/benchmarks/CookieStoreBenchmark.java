@@ -0,0 +1,130 @@
+package com.nattguld.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.nattguld.http.SessionCookies;
+import com.nattguld.http.content.cookies.Cookie;
+
+/**
+ * Compares the indexed session cookies with the cookie list sessions used before, which scanned it for every lookup and replace.
+ * 
+ * @author randqm
+ *
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CookieStoreBenchmark {
+	
+	/**
+	 * The amount of cookies in the session.
+	 */
+	@Param({"10", "100", "1000"})
+	public int cookies;
+	
+	/**
+	 * The cookies as the list sessions used to hold.
+	 */
+	private List<Cookie> list;
+	
+	/**
+	 * The indexed session cookies.
+	 */
+	private SessionCookies indexed;
+	
+	/**
+	 * The cookie names to look up.
+	 */
+	private String[] names;
+	
+	/**
+	 * Replacements for the session cookies.
+	 */
+	private Cookie[] replacements;
+	
+	
+	/**
+	 * Fills both stores with the same cookies.
+	 */
+	@Setup
+	public void setup() {
+		List<Cookie> fixture = Fixtures.cookies(1, cookies);
+		
+		this.list = new ArrayList<>(fixture);
+		this.indexed = new SessionCookies(fixture);
+		this.names = new String[fixture.size()];
+		this.replacements = new Cookie[fixture.size()];
+		
+		for (int i = 0; i < fixture.size(); i++) {
+			Cookie cookie = fixture.get(i);
+			names[i] = cookie.getName().toUpperCase();
+			replacements[i] = Fixtures.cookie(cookie.getName(), "replaced", cookie.getDomain(), cookie.getPath());
+		}
+	}
+	
+	@Benchmark
+	public Cookie listLookup() {
+		return getCookieByName(list, names[ThreadLocalRandom.current().nextInt(names.length)]);
+	}
+	
+	@Benchmark
+	public Cookie indexedLookup() {
+		return indexed.getByName(names[ThreadLocalRandom.current().nextInt(names.length)]);
+	}
+	
+	@Benchmark
+	public List<Cookie> listReplace() {
+		Cookie cookie = replacements[ThreadLocalRandom.current().nextInt(replacements.length)];
+		Cookie exists = getCookieByName(list, cookie.getName());
+		
+		if (Objects.nonNull(exists)) {
+			list.remove(exists);
+		}
+		list.add(cookie);
+		return list;
+	}
+	
+	@Benchmark
+	public Cookie indexedReplace() {
+		return indexed.addOrReplace(replacements[ThreadLocalRandom.current().nextInt(replacements.length)]);
+	}
+	
+	/**
+	 * Retrieves a cookie by it's name the way sessions did before the index.
+	 * 
+	 * @param cookies The cookies.
+	 * 
+	 * @param cookieName The cookie name.
+	 * 
+	 * @return The cookie.
+	 */
+	private static Cookie getCookieByName(List<Cookie> cookies, String cookieName) {
+		for (Cookie cookie : cookies) {
+			if (cookie.getName().equalsIgnoreCase(cookieName)) {
+				return cookie;
+			}
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,162 @@
+package com.nattguld.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.nattguld.tasker.exec.NetTaskExecutor;
+
+/**
+ * Measures how long a fleet of sessions takes to each finish one blocking request, on platform threads and on virtual threads.
+ * The platform model is capped at the thread count a platform pool is realistically run with, virtual threads run every session at once.
+ * Requests either sleep for the latency or go to the in-process stub server, which needs two file descriptors per concurrent session.
+ * 
+ * @author randqm
+ *
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xss256k"})
+public class ExecutorThroughputBenchmark {
+	
+	/**
+	 * The maximum concurrent sessions on platform threads.
+	 */
+	private static final int PLATFORM_MAX_IN_FLIGHT = 2_000;
+	
+	/**
+	 * The latency of a request in milliseconds.
+	 */
+	private static final long LATENCY = 50L;
+	
+	/**
+	 * The amount of concurrent sessions.
+	 */
+	@Param({"1000", "10000", "100000"})
+	public int sessions;
+	
+	/**
+	 * Whether to run the sessions on virtual threads or not.
+	 */
+	@Param({"false", "true"})
+	public boolean virtual;
+	
+	/**
+	 * Whether requests go to the stub server or only sleep for the latency.
+	 */
+	@Param({"sleep", "http"})
+	public String io;
+	
+	/**
+	 * The stub server.
+	 */
+	private StubHttpServer server;
+	
+	/**
+	 * The executor running the sessions.
+	 */
+	private NetTaskExecutor executor;
+	
+	/**
+	 * The amount of failed requests.
+	 */
+	private final AtomicLong failures = new AtomicLong();
+	
+	
+	/**
+	 * Starts the stub server and executor.
+	 * 
+	 * @throws IOException When the server could not be started.
+	 */
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		this.server = "http".equals(io) ? new StubHttpServer(LATENCY) : null;
+		this.executor = new NetTaskExecutor(virtual ? sessions : Math.min(sessions, PLATFORM_MAX_IN_FLIGHT), virtual);
+		
+		if (virtual && !executor.isVirtual()) {
+			throw new IllegalStateException("The runtime has no virtual threads, run the benchmarks on Java 21 or later");
+		}
+	}
+	
+	/**
+	 * Stops the executor and stub server and reports failed requests.
+	 * 
+	 * @throws InterruptedException When interrupted while waiting for the executor.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException {
+		executor.shutdown();
+		executor.awaitTermination(1L, TimeUnit.MINUTES);
+		
+		if (Objects.nonNull(server)) {
+			server.close();
+		}
+		if (failures.get() > 0L) {
+			System.out.println("Failed requests: " + failures.get());
+		}
+	}
+	
+	@Benchmark
+	public long runFleet() throws InterruptedException {
+		CountDownLatch done = new CountDownLatch(sessions);
+		
+		for (int i = 0; i < sessions; i++) {
+			executor.submit(() -> {
+				try {
+					request();
+				} finally {
+					done.countDown();
+				}
+			});
+		}
+		done.await();
+		return failures.get();
+	}
+	
+	/**
+	 * Executes a blocking request.
+	 */
+	private void request() {
+		try {
+			if (Objects.isNull(server)) {
+				Thread.sleep(LATENCY);
+				return;
+			}
+			HttpURLConnection connection = (HttpURLConnection)new URL(server.getUrl("/")).openConnection();
+			
+			try (InputStream in = connection.getInputStream()) {
+				while (in.read() != -1) {
+					//Drain the body so the connection is reused
+				}
+			}
+		} catch (IOException ex) {
+			failures.incrementAndGet();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
@@ -0,0 +1,120 @@
+package com.nattguld.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.nattguld.http.SessionData;
+import com.nattguld.http.content.cookies.Cookie;
+import com.nattguld.http.proxies.HttpProxy;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public final class Fixtures {
+	
+	/**
+	 * The cookie names sessions typically collect, consent and tracking cookies repeat across every session.
+	 */
+	private static final String[] COMMON_NAMES = {
+			"_ga", "_gid", "_gat", "_fbp", "__cf_bm", "cf_clearance", "consent", "euconsent-v2", "OptanonConsent", "OptanonAlertBoxClosed",
+			"_hjSessionUser", "_hjSession", "_gcl_au", "ajs_anonymous_id", "locale", "theme", "csrftoken", "sessionid"
+	};
+	
+	/**
+	 * The gson instance used to create proxies.
+	 */
+	private static final Gson GSON = new Gson();
+	
+	
+	/**
+	 * Creates a cookie.
+	 * This is the only place the benchmarks construct cookies, adjust it when the http library changes it's cookie constructor.
+	 * 
+	 * @param name The name.
+	 * 
+	 * @param value The value.
+	 * 
+	 * @param domain The domain.
+	 * 
+	 * @param path The path.
+	 * 
+	 * @return The cookie.
+	 */
+	public static Cookie cookie(String name, String value, String domain, String path) {
+		return new Cookie(name, value, domain, path);
+	}
+	
+	/**
+	 * Creates the cookies of a session, the first ones with common names and values shared by every session.
+	 * 
+	 * @param session The session index, makes the remaining values unique.
+	 * 
+	 * @param amount The amount of cookies.
+	 * 
+	 * @return The cookies.
+	 */
+	public static List<Cookie> cookies(int session, int amount) {
+		List<Cookie> cookies = new ArrayList<>(amount);
+		
+		for (int i = 0; i < amount; i++) {
+			if (i < COMMON_NAMES.length) {
+				String value = i % 2 == 0 ? "1" : "GA1.2." + session + "." + i;
+				cookies.add(cookie(COMMON_NAMES[i], value, ".example.com", "/"));
+			} else {
+				cookies.add(cookie("tracker_" + i, Integer.toHexString(session * 31 + i), "tracker" + (i % 8) + ".example.net", "/"));
+			}
+		}
+		return cookies;
+	}
+	
+	/**
+	 * Creates session data holding cookies.
+	 * 
+	 * @param session The session index.
+	 * 
+	 * @param cookies The amount of cookies.
+	 * 
+	 * @return The session data.
+	 */
+	public static SessionData session(int session, int cookies) {
+		SessionData sessionData = new SessionData();
+		sessionData.getCookies().addAll(cookies(session, cookies));
+		return sessionData;
+	}
+	
+	/**
+	 * Creates a proxy that is only used as registry key, it's never connected to.
+	 * This is the only place the benchmarks construct proxies, adjust it when the http library changes it's proxy fields.
+	 * 
+	 * @param uuid The proxy UUID.
+	 * 
+	 * @return The proxy.
+	 */
+	public static HttpProxy proxy(String uuid) {
+		JsonObject json = new JsonObject();
+		json.addProperty("uuid", uuid);
+		return GSON.fromJson(json, HttpProxy.class);
+	}
+	
+	/**
+	 * Creates proxies.
+	 * 
+	 * @param amount The amount of proxies.
+	 * 
+	 * @return The proxies.
+	 */
+	public static HttpProxy[] proxies(int amount) {
+		HttpProxy[] proxies = new HttpProxy[amount];
+		
+		for (int i = 0; i < amount; i++) {
+			proxies[i] = proxy("proxy-" + i);
+		}
+		return proxies;
+	}
+
+}
@@ -0,0 +1,105 @@
+package com.nattguld.benchmarks;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jol.info.GraphLayout;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import com.nattguld.http.SessionCookies;
+import com.nattguld.http.StringPool;
+import com.nattguld.http.content.cookies.Cookie;
+
+/**
+ * Measures the retained heap of the cookies of loaded sessions, as plain cookie lists the way sessions were loaded before
+ * and as session cookies loaded through the string pooling gson instance the session store uses.
+ * Usage: HeapFootprint [cookies per session] [session counts...], defaults to 20 cookies at 10k, 100k and 1M sessions.
+ * 
+ * @author randqm
+ *
+ */
+
+public final class HeapFootprint {
+	
+	/**
+	 * The cookie list type.
+	 */
+	private static final Type COOKIE_LIST = new TypeToken<List<Cookie>>() {}.getType();
+	
+	
+	/**
+	 * Runs the measurement.
+	 * 
+	 * @param args The cookies per session followed by the session counts.
+	 */
+	public static void main(String[] args) {
+		int cookies = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+		int[] counts = {10_000, 100_000, 1_000_000};
+		
+		if (args.length > 1) {
+			counts = new int[args.length - 1];
+			
+			for (int i = 1; i < args.length; i++) {
+				counts[i - 1] = Integer.parseInt(args[i]);
+			}
+		}
+		Gson plain = new Gson();
+		Gson pooled = new GsonBuilder().registerTypeAdapter(String.class, StringPool.getTypeAdapter()).create();
+		
+		System.out.println(String.format("%-10s %-8s %16s %16s %10s %10s", "sessions", "cookies", "list bytes", "compact bytes", "list/s", "compact/s"));
+		
+		for (int count : counts) {
+			long list = measure(count, cookies, json -> plain.<List<Cookie>>fromJson(json, COOKIE_LIST));
+			long compact = measure(count, cookies, json -> new SessionCookies(pooled.<List<Cookie>>fromJson(json, COOKIE_LIST)));
+			System.out.println(String.format("%-10d %-8d %16d %16d %10d %10d", count, cookies, list, compact, list / count, compact / count));
+		}
+	}
+	
+	/**
+	 * Loads the cookies of every session from json and measures the retained heap of all of them together.
+	 * Shared instances, such as pooled strings, are counted once like on the heap.
+	 * 
+	 * @param sessions The amount of sessions.
+	 * 
+	 * @param cookies The cookies per session.
+	 * 
+	 * @param loader Loads the cookies of a session from json.
+	 * 
+	 * @return The retained heap in bytes.
+	 */
+	private static long measure(int sessions, int cookies, Loader loader) {
+		Gson gson = new Gson();
+		List<Object> loaded = new ArrayList<>(sessions);
+		
+		for (int i = 0; i < sessions; i++) {
+			loaded.add(loader.load(gson.toJson(Fixtures.cookies(i, cookies))));
+		}
+		long size = GraphLayout.parseInstance(loaded).totalSize();
+		loaded.clear();
+		System.gc();
+		return size;
+	}
+	
+	/**
+	 * 
+	 * @author randqm
+	 * 
+	 */
+	@FunctionalInterface
+	private interface Loader {
+		
+		/**
+		 * Loads the cookies of a session from json.
+		 * 
+		 * @param json The serialized cookies.
+		 * 
+		 * @return The loaded cookies.
+		 */
+		Object load(String json);
+	
+	}
+
+}
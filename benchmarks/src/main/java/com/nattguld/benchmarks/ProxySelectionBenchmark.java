@@ -0,0 +1,103 @@
+package com.nattguld.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.nattguld.http.proxies.HttpProxy;
+import com.nattguld.tasker.proxies.AdaptiveProxyLimit;
+import com.nattguld.tasker.proxies.AdaptiveProxyLimits;
+import com.nattguld.tasker.proxies.ProxyCircuitBreakers;
+import com.nattguld.tasker.proxies.ProxyHealthRegistry;
+
+/**
+ * Measures the proxy selection the tasks do on top of the proxy manager's draw:
+ * the circuit and adaptive limit checks of two candidates, the health based choice and taking and handing back a slot.
+ * The draw itself needs a configured proxy manager and is left out.
+ * 
+ * @author randqm
+ *
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProxySelectionBenchmark {
+	
+	/**
+	 * The amount of proxies.
+	 */
+	@Param({"16", "1024"})
+	public int proxyCount;
+	
+	/**
+	 * The proxies.
+	 */
+	private HttpProxy[] proxies;
+	
+	
+	/**
+	 * Creates the proxies and gives them some health history.
+	 */
+	@Setup
+	public void setup() {
+		this.proxies = Fixtures.proxies(proxyCount);
+		
+		for (HttpProxy proxy : proxies) {
+			for (int i = 0; i < 32; i++) {
+				ProxyHealthRegistry.getSingleton().getHealth(proxy).recordLatency(TimeUnit.MILLISECONDS.toNanos(50L + ThreadLocalRandom.current().nextInt(200)));
+				ProxyHealthRegistry.getSingleton().getHealth(proxy).recordOutcome(ThreadLocalRandom.current().nextInt(10) > 0);
+			}
+		}
+	}
+	
+	@Benchmark
+	public HttpProxy selectSingle() {
+		return select();
+	}
+	
+	@Benchmark
+	@Threads(4)
+	public HttpProxy selectContended() {
+		return select();
+	}
+	
+	/**
+	 * Selects a proxy from two random candidates like an unbound task does, taking and handing back a slot of it's adaptive limit.
+	 * 
+	 * @return The selected proxy.
+	 */
+	private HttpProxy select() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		HttpProxy first = proxies[random.nextInt(proxies.length)];
+		HttpProxy second = proxies[random.nextInt(proxies.length)];
+		HttpProxy chosen = ProxyHealthRegistry.getSingleton().choose(first, second);
+		
+		if (!ProxyCircuitBreakers.getSingleton().isAllowing(chosen)) {
+			return null;
+		}
+		AdaptiveProxyLimit limit = AdaptiveProxyLimits.getSingleton().getLimit(chosen);
+		
+		if (!limit.tryAcquire()) {
+			return null;
+		}
+		limit.release();
+		return chosen;
+	}
+
+}
@@ -0,0 +1,127 @@
+package com.nattguld.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.nattguld.data.json.JsonReader;
+import com.nattguld.http.store.LogSessionStore;
+
+/**
+ * Measures serializing and deserializing stored sessions, in memory and through the log structured store.
+ * 
+ * @author randqm
+ *
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionStoreBenchmark {
+	
+	/**
+	 * The amount of cookies in the session.
+	 */
+	@Param({"10", "100"})
+	public int cookies;
+	
+	/**
+	 * The gson instance the session is written with.
+	 */
+	private final Gson gson = new Gson();
+	
+	/**
+	 * The session.
+	 */
+	private BenchmarkSession session;
+	
+	/**
+	 * The serialized session.
+	 */
+	private JsonObject json;
+	
+	/**
+	 * The directory of the log store.
+	 */
+	private Path dir;
+	
+	/**
+	 * The log store.
+	 */
+	private LogSessionStore<BenchmarkSession> store;
+	
+	
+	/**
+	 * Creates the session and an empty log store.
+	 * 
+	 * @throws IOException When the store could not be created.
+	 */
+	@Setup
+	public void setup() throws IOException {
+		this.session = new BenchmarkSession(Fixtures.session(1, cookies));
+		this.json = session.toJsonObject(gson);
+		this.dir = Files.createTempDirectory("session-store-benchmark");
+		this.store = new LogSessionStore<>(dir, BenchmarkSession::new, 64L * 1024L * 1024L);
+		store.write(session);
+	}
+	
+	/**
+	 * Closes and deletes the log store.
+	 * 
+	 * @throws IOException When the store could not be deleted.
+	 */
+	@TearDown
+	public void tearDown() throws IOException {
+		store.close();
+		
+		try (Stream<Path> files = Files.walk(dir)) {
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+	
+	@Benchmark
+	public JsonObject serialize() {
+		return session.toJsonObject(gson);
+	}
+	
+	@Benchmark
+	public int deserialize() {
+		BenchmarkSession read = new BenchmarkSession(new JsonReader(gson, json));
+		return read.getSessionData().getCookies().size();
+	}
+	
+	@Benchmark
+	public int deserializeLazily() {
+		BenchmarkSession read = new BenchmarkSession(new JsonReader(gson, json));
+		return Objects.isNull(read.getSessionData().getLastReferer()) ? 0 : 1;
+	}
+	
+	@Benchmark
+	public BenchmarkSession storeRoundTrip() throws IOException {
+		store.write(session);
+		return store.load(session.getUUID());
+	}
+
+}
@@ -0,0 +1,142 @@
+package com.nattguld.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An in-process http server answering every request with a small body after a fixed latency.
+ * 
+ * @author randqm
+ *
+ */
+
+public class StubHttpServer implements AutoCloseable {
+	
+	/**
+	 * The response body.
+	 */
+	private static final byte[] BODY = "<html><body>ok</body></html>".getBytes(StandardCharsets.UTF_8);
+	
+	/**
+	 * The server.
+	 */
+	private final HttpServer server;
+	
+	/**
+	 * The executor handling the requests.
+	 */
+	private final ExecutorService executor;
+	
+	/**
+	 * The latency before answering in milliseconds.
+	 */
+	private final long latency;
+	
+	
+	/**
+	 * Creates and starts a new stub server on a free local port.
+	 * 
+	 * @param latency The latency before answering in milliseconds.
+	 * 
+	 * @throws IOException When the server could not be bound.
+	 */
+	public StubHttpServer(long latency) throws IOException {
+		this.latency = latency;
+		this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+		this.executor = newExecutor();
+		
+		server.createContext("/", this::handle);
+		server.setExecutor(executor);
+		server.start();
+	}
+	
+	/**
+	 * Answers a request.
+	 * 
+	 * @param exchange The exchange.
+	 * 
+	 * @throws IOException When the response could not be written.
+	 */
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			if (latency > 0L) {
+				Thread.sleep(latency);
+			}
+			exchange.getResponseHeaders().add("Content-Type", "text/html");
+			exchange.getResponseHeaders().add("Set-Cookie", "stub_session=" + Long.toHexString(System.nanoTime()) + "; Path=/");
+			exchange.sendResponseHeaders(200, BODY.length);
+			
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(BODY);
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		} finally {
+			exchange.close();
+		}
+	}
+	
+	/**
+	 * Retrieves the port the server listens on.
+	 * 
+	 * @return The port.
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+	
+	/**
+	 * Retrieves the url of a path on the server.
+	 * 
+	 * @param path The path.
+	 * 
+	 * @return The url.
+	 */
+	public String getUrl(String path) {
+		return "http://127.0.0.1:" + getPort() + path;
+	}
+	
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+		
+		try {
+			executor.awaitTermination(5L, TimeUnit.SECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Creates the executor handling requests, a virtual thread per request when the runtime supports it.
+	 * 
+	 * @return The executor.
+	 */
+	public static ExecutorService newExecutor() {
+		try {
+			ExecutorService executor = (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			
+			if (Objects.nonNull(executor)) {
+				return executor;
+			}
+		} catch (ReflectiveOperationException ex) {
+			//Runtime without virtual threads
+		}
+		return Executors.newCachedThreadPool(r -> {
+			Thread thread = new Thread(r, "stub-http");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+}
@@ -0,0 +1,67 @@
+package com.nattguld.benchmarks.load;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.URL;
+import java.util.Objects;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+@FunctionalInterface
+public interface LoadRequest {
+	
+	/**
+	 * Executes a request of a load test task.
+	 * 
+	 * @param task The task, holding the client it built.
+	 * 
+	 * @param url The url to request.
+	 * 
+	 * @return The response status code.
+	 * 
+	 * @throws IOException When the request failed.
+	 */
+	int execute(LoadTestTask task, String url) throws IOException;
+	
+	/**
+	 * Creates a request going through a http proxy with the jdk's url connection.
+	 * Only the task's client build, cookie import and merge run through the library, replace this with a request through the task's client to include it.
+	 * 
+	 * @param proxy The proxy address.
+	 * 
+	 * @return The request.
+	 */
+	static LoadRequest throughProxy(InetSocketAddress proxy) {
+		Proxy httpProxy = new Proxy(Proxy.Type.HTTP, proxy);
+		
+		return (task, url) -> {
+			HttpURLConnection connection = (HttpURLConnection)new URL(url).openConnection(httpProxy);
+			connection.setConnectTimeout(10_000);
+			connection.setReadTimeout(30_000);
+			
+			try {
+				int status = connection.getResponseCode();
+				InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+				
+				if (Objects.nonNull(in)) {
+					try (InputStream body = in) {
+						while (body.read() != -1) {
+							//Drain the body
+						}
+					}
+				}
+				return status;
+			} finally {
+				connection.disconnect();
+			}
+		};
+	}
+
+}
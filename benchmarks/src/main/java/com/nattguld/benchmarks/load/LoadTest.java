@@ -0,0 +1,223 @@
+package com.nattguld.benchmarks.load;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.nattguld.benchmarks.Fixtures;
+import com.nattguld.benchmarks.StubHttpServer;
+import com.nattguld.http.DefaultSession;
+import com.nattguld.http.cfg.PolicySnapshot;
+import com.nattguld.http.cfg.ProxyPolicy;
+import com.nattguld.tasker.clients.ClientPool;
+import com.nattguld.tasker.exec.NetTaskExecutor;
+
+/**
+ * Drives session task fleets through an in-process http server and forwarding proxy, fully offline,
+ * and reports throughput, latency percentiles and proxy utilization.
+ * Usage: LoadTest [--option=value...], see {@link #DEFAULTS} for the options.
+ * 
+ * @author randqm
+ *
+ */
+
+public final class LoadTest {
+	
+	/**
+	 * The options and their defaults.
+	 */
+	private static final String[][] DEFAULTS = {
+			{"tasks", "10000", "The amount of task runs"},
+			{"concurrency", "500", "The maximum tasks in flight"},
+			{"sessions", "1000", "The amount of sessions the tasks share"},
+			{"cookies", "20", "The cookies per session"},
+			{"virtual", "true", "Whether to run the tasks on virtual threads"},
+			{"pooled", "true", "Whether the tasks lease their clients from a pool"},
+			{"server-latency", "20", "The latency of the http server in milliseconds"},
+			{"proxy-latency", "5", "The latency the proxy adds in milliseconds"},
+			{"error-rate", "0.01", "The share of requests the proxy fails"},
+			{"proxy-connections", "400", "The maximum concurrent proxy connections"}
+	};
+	
+	
+	/**
+	 * Runs the load test.
+	 * 
+	 * @param args The options.
+	 * 
+	 * @throws Exception When the server or proxy could not be started or the test was interrupted.
+	 */
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = parseOptions(args);
+		
+		if (Objects.isNull(options)) {
+			for (String[] option : DEFAULTS) {
+				System.out.println(String.format("--%-20s %s (default %s)", option[0], option[2], option[1]));
+			}
+			return;
+		}
+		int tasks = Integer.parseInt(options.get("tasks"));
+		int concurrency = Integer.parseInt(options.get("concurrency"));
+		int sessionCount = Integer.parseInt(options.get("sessions"));
+		int cookies = Integer.parseInt(options.get("cookies"));
+		
+		PolicySnapshot.update((session, proxy) -> session.setProxyPolicy(ProxyPolicy.ANY));
+		
+		DefaultSession[] sessions = new DefaultSession[sessionCount];
+		
+		for (int i = 0; i < sessions.length; i++) {
+			sessions[i] = new DefaultSession(Fixtures.session(i, cookies));
+		}
+		LoadTestResults results = new LoadTestResults();
+		ClientPool clientPool = Boolean.parseBoolean(options.get("pooled")) ? new ClientPool(8, 1L, TimeUnit.MINUTES) : null;
+		NetTaskExecutor executor = new NetTaskExecutor(concurrency, Boolean.parseBoolean(options.get("virtual")));
+		
+		try (StubHttpServer server = new StubHttpServer(Long.parseLong(options.get("server-latency")));
+				StubProxy proxy = new StubProxy(Long.parseLong(options.get("proxy-latency")), Double.parseDouble(options.get("error-rate")), Integer.parseInt(options.get("proxy-connections")))) {
+			LoadRequest request = LoadRequest.throughProxy(proxy.getAddress());
+			String url = server.getUrl("/");
+			ProxySampler sampler = new ProxySampler(proxy);
+			
+			System.out.println("Running " + tasks + " tasks, " + concurrency + " in flight on " + (executor.isVirtual() ? "virtual" : "platform") + " threads");
+			sampler.start();
+			long start = System.nanoTime();
+			
+			for (int i = 0; i < tasks; i++) {
+				LoadTestTask task = new LoadTestTask(sessions[i % sessions.length], url, request, results);
+				
+				if (Objects.nonNull(clientPool)) {
+					task.assignClientPool(clientPool);
+				}
+				executor.submit(task::runOnce);
+			}
+			executor.shutdown();
+			executor.awaitTermination(1L, TimeUnit.HOURS);
+			long elapsed = System.nanoTime() - start;
+			
+			sampler.stop();
+			results.print(System.out, elapsed, proxy, sampler.getMean());
+		} finally {
+			if (Objects.nonNull(clientPool)) {
+				clientPool.close();
+			}
+		}
+	}
+	
+	/**
+	 * Parses the options, filling in the defaults.
+	 * 
+	 * @param args The arguments.
+	 * 
+	 * @return The options, null when the usage was requested or an option is unknown.
+	 */
+	private static Map<String, String> parseOptions(String[] args) {
+		Map<String, String> options = new HashMap<>();
+		
+		for (String[] option : DEFAULTS) {
+			options.put(option[0], option[1]);
+		}
+		for (String arg : args) {
+			int separator = arg.indexOf('=');
+			
+			if (!arg.startsWith("--") || separator < 0 || !options.containsKey(arg.substring(2, separator))) {
+				return null;
+			}
+			options.put(arg.substring(2, separator), arg.substring(separator + 1));
+		}
+		return options;
+	}
+	
+	/**
+	 * 
+	 * @author randqm
+	 * 
+	 */
+	private static final class ProxySampler {
+		
+		/**
+		 * The interval between samples in milliseconds.
+		 */
+		private static final long INTERVAL = 10L;
+		
+		/**
+		 * The proxy.
+		 */
+		private final StubProxy proxy;
+		
+		/**
+		 * The sum of the sampled open connections.
+		 */
+		private final LongAdder sum = new LongAdder();
+		
+		/**
+		 * The amount of samples.
+		 */
+		private final LongAdder samples = new LongAdder();
+		
+		/**
+		 * Whether the sampler runs or not.
+		 */
+		private final AtomicBoolean running = new AtomicBoolean();
+		
+		/**
+		 * The sampling thread.
+		 */
+		private Thread thread;
+		
+		
+		/**
+		 * Creates a new sampler.
+		 * 
+		 * @param proxy The proxy.
+		 */
+		private ProxySampler(StubProxy proxy) {
+			this.proxy = proxy;
+		}
+		
+		/**
+		 * Starts sampling.
+		 */
+		private void start() {
+			running.set(true);
+			thread = new Thread(() -> {
+				while (running.get()) {
+					sum.add(proxy.getActive());
+					samples.increment();
+					
+					try {
+						Thread.sleep(INTERVAL);
+					} catch (InterruptedException ex) {
+						return;
+					}
+				}
+			}, "proxy-sampler");
+			thread.setDaemon(true);
+			thread.start();
+		}
+		
+		/**
+		 * Stops sampling.
+		 * 
+		 * @throws InterruptedException When interrupted while waiting for the sampler.
+		 */
+		private void stop() throws InterruptedException {
+			running.set(false);
+			thread.join();
+		}
+		
+		/**
+		 * Retrieves the mean sampled open connections.
+		 * 
+		 * @return The mean.
+		 */
+		private double getMean() {
+			long count = samples.sum();
+			return count == 0L ? 0D : (double)sum.sum() / count;
+		}
+	
+	}
+
+}
@@ -0,0 +1,156 @@
+package com.nattguld.benchmarks.load;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.nattguld.tasker.metrics.HistogramSnapshot;
+import com.nattguld.tasker.metrics.LatencyHistogram;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public class LoadTestResults {
+	
+	/**
+	 * The latency of the requests.
+	 */
+	private final LatencyHistogram requestLatency = new LatencyHistogram();
+	
+	/**
+	 * The latency of the task runs, client build to dispose.
+	 */
+	private final LatencyHistogram taskLatency = new LatencyHistogram();
+	
+	/**
+	 * The time spent building clients.
+	 */
+	private final LatencyHistogram clientBuildTime = new LatencyHistogram();
+	
+	/**
+	 * The amount of successful runs.
+	 */
+	private final LongAdder successes = new LongAdder();
+	
+	/**
+	 * The amount of runs whose request answered with an error status.
+	 */
+	private final LongAdder failures = new LongAdder();
+	
+	/**
+	 * The amount of runs cancelled because no client was built.
+	 */
+	private final LongAdder cancels = new LongAdder();
+	
+	/**
+	 * The amount of runs whose request threw.
+	 */
+	private final LongAdder exceptions = new LongAdder();
+	
+	
+	/**
+	 * Retrieves the latency of the requests.
+	 * 
+	 * @return The histogram.
+	 */
+	public LatencyHistogram getRequestLatency() {
+		return requestLatency;
+	}
+	
+	/**
+	 * Retrieves the latency of the task runs.
+	 * 
+	 * @return The histogram.
+	 */
+	public LatencyHistogram getTaskLatency() {
+		return taskLatency;
+	}
+	
+	/**
+	 * Retrieves the time spent building clients.
+	 * 
+	 * @return The histogram.
+	 */
+	public LatencyHistogram getClientBuildTime() {
+		return clientBuildTime;
+	}
+	
+	/**
+	 * Counts a successful run.
+	 */
+	public void incrementSuccesses() {
+		successes.increment();
+	}
+	
+	/**
+	 * Counts a run whose request answered with an error status.
+	 */
+	public void incrementFailures() {
+		failures.increment();
+	}
+	
+	/**
+	 * Counts a run cancelled because no client was built.
+	 */
+	public void incrementCancels() {
+		cancels.increment();
+	}
+	
+	/**
+	 * Counts a run whose request threw.
+	 */
+	public void incrementExceptions() {
+		exceptions.increment();
+	}
+	
+	/**
+	 * Retrieves the amount of finished runs.
+	 * 
+	 * @return The amount.
+	 */
+	public long getRuns() {
+		return successes.sum() + failures.sum() + cancels.sum() + exceptions.sum();
+	}
+	
+	/**
+	 * Prints the results.
+	 * 
+	 * @param out The stream to print to.
+	 * 
+	 * @param elapsed The wall time of the test in nanoseconds.
+	 * 
+	 * @param proxy The proxy the requests went through.
+	 * 
+	 * @param meanProxyConnections The mean open proxy connections while the test ran.
+	 */
+	public void print(PrintStream out, long elapsed, StubProxy proxy, double meanProxyConnections) {
+		double seconds = elapsed / 1_000_000_000D;
+		
+		out.println(String.format("runs            %d in %.2f s, %.1f runs/s", getRuns(), seconds, getRuns() / seconds));
+		out.println(String.format("outcomes        %d success, %d failed, %d cancelled, %d exceptions", successes.sum(), failures.sum(), cancels.sum(), exceptions.sum()));
+		print(out, "request", requestLatency.getSnapshot());
+		print(out, "task", taskLatency.getSnapshot());
+		print(out, "client build", clientBuildTime.getSnapshot());
+		out.println(String.format("proxy           %d accepted, %d refused, %d injected errors", proxy.getAccepted(), proxy.getRefused(), proxy.getInjectedErrors()));
+		out.println(String.format("proxy usage     mean %.1f, peak %d of %d connections (%.1f%% mean utilization)", meanProxyConnections, proxy.getPeak(), proxy.getMaxConnections(), 100D * meanProxyConnections / proxy.getMaxConnections()));
+	}
+	
+	/**
+	 * Prints the percentiles of a histogram.
+	 * 
+	 * @param out The stream to print to.
+	 * 
+	 * @param label The label.
+	 * 
+	 * @param snapshot The histogram snapshot.
+	 */
+	private static void print(PrintStream out, String label, HistogramSnapshot snapshot) {
+		out.println(String.format("%-15s p50 %d ms, p90 %d ms, p99 %d ms, max %d ms, mean %d ms", label
+				, snapshot.getPercentile(50D, TimeUnit.MILLISECONDS), snapshot.getPercentile(90D, TimeUnit.MILLISECONDS)
+				, snapshot.getPercentile(99D, TimeUnit.MILLISECONDS), snapshot.getMax(TimeUnit.MILLISECONDS), snapshot.getMean(TimeUnit.MILLISECONDS)));
+	}
+
+}
@@ -0,0 +1,131 @@
+package com.nattguld.benchmarks.load;
+
+import com.nattguld.http.DefaultSession;
+import com.nattguld.http.proxies.cfg.ProxyChoice;
+import com.nattguld.tasker.sessions.SessionTask;
+import com.nattguld.tasker.steps.Step;
+import com.nattguld.tasker.steps.StepState;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public class LoadTestTask extends SessionTask<DefaultSession> {
+	
+	/**
+	 * The url to request.
+	 */
+	private final String url;
+	
+	/**
+	 * Executes the request.
+	 */
+	private final LoadRequest request;
+	
+	/**
+	 * The results to record the run in.
+	 */
+	private final LoadTestResults results;
+	
+	
+	/**
+	 * Creates a new load test task on a direct connection, the request decides the route.
+	 * 
+	 * @param session The session.
+	 * 
+	 * @param url The url to request.
+	 * 
+	 * @param request Executes the request.
+	 * 
+	 * @param results The results to record the run in.
+	 */
+	public LoadTestTask(DefaultSession session, String url, LoadRequest request, LoadTestResults results) {
+		super(session, ProxyChoice.DIRECT, "Load test");
+		
+		this.url = url;
+		this.request = request;
+		this.results = results;
+	}
+	
+	/**
+	 * Runs the task like the tasker runs it's steps: build the client, execute the request step and finish.
+	 * Use it when the tasker is not available to run the task, otherwise hand the task to the tasker instead.
+	 */
+	public void runOnce() {
+		long start = System.nanoTime();
+		Step step = timed(new Step("Request") {
+			@Override
+			public StepState execute() {
+				long requestStart = System.nanoTime();
+				
+				try {
+					int status = request.execute(LoadTestTask.this, url);
+					return status < 400 ? StepState.SUCCESS : StepState.FAIL;
+				} catch (Exception ex) {
+					throw new LoadRequestException(ex);
+				} finally {
+					results.getRequestLatency().recordSince(requestStart);
+				}
+			}
+			
+			@Override
+			public boolean isCritical() {
+				return true;
+			}
+		});
+		try {
+			if (!buildClient()) {
+				results.incrementCancels();
+				return;
+			}
+			results.getClientBuildTime().recordSince(start);
+			
+			try {
+				if (step.execute() == StepState.SUCCESS) {
+					results.incrementSuccesses();
+				} else {
+					results.incrementFailures();
+					onStepFail(step);
+				}
+			} catch (LoadRequestException ex) {
+				results.incrementExceptions();
+				onException(step, (Exception)ex.getCause());
+			}
+		} finally {
+			onFinish();
+			results.getTaskLatency().recordSince(start);
+		}
+	}
+	
+	@Override
+	protected boolean canPrewarm() {
+		return false;
+	}
+	
+	/**
+	 * 
+	 * @author randqm
+	 * 
+	 */
+	private static final class LoadRequestException extends RuntimeException {
+		
+		/**
+		 * The serial version UID.
+		 */
+		private static final long serialVersionUID = 1L;
+		
+		
+		/**
+		 * Creates a new exception wrapping the failure of a request.
+		 * 
+		 * @param cause The failure.
+		 */
+		private LoadRequestException(Exception cause) {
+			super(cause);
+		}
+	
+	}
+
+}
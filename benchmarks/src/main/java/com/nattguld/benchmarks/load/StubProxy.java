@@ -0,0 +1,453 @@
+package com.nattguld.benchmarks.load;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.nattguld.benchmarks.StubHttpServer;
+
+/**
+ * An in-process forwarding http proxy with configurable latency, error rate and connection limit.
+ * Forwards absolute form requests and tunnels CONNECT requests, one upstream connection per client connection.
+ * 
+ * @author randqm
+ *
+ */
+
+public class StubProxy implements AutoCloseable {
+	
+	/**
+	 * The maximum size of a request head.
+	 */
+	private static final int MAX_HEAD = 16 * 1024;
+	
+	/**
+	 * The last four bytes of a request head, an empty line.
+	 */
+	private static final int HEAD_END = 0x0D0A0D0A;
+	
+	/**
+	 * The listening socket.
+	 */
+	private final ServerSocket serverSocket;
+	
+	/**
+	 * The executor handling the connections.
+	 */
+	private final ExecutorService executor;
+	
+	/**
+	 * The latency added before connecting upstream in milliseconds.
+	 */
+	private final long latency;
+	
+	/**
+	 * The share of requests answered with a bad gateway instead of being forwarded, between 0 and 1.
+	 */
+	private final double errorRate;
+	
+	/**
+	 * The maximum concurrent connections.
+	 */
+	private final int maxConnections;
+	
+	/**
+	 * The connection slots.
+	 */
+	private final Semaphore slots;
+	
+	/**
+	 * The amount of open connections.
+	 */
+	private final AtomicInteger active;
+	
+	/**
+	 * The highest amount of open connections.
+	 */
+	private final AtomicInteger peak;
+	
+	/**
+	 * The amount of accepted connections.
+	 */
+	private final LongAdder accepted;
+	
+	/**
+	 * The amount of connections refused because the limit was reached.
+	 */
+	private final LongAdder refused;
+	
+	/**
+	 * The amount of requests answered with an injected error.
+	 */
+	private final LongAdder injectedErrors;
+	
+	/**
+	 * Whether the proxy accepts connections or not.
+	 */
+	private volatile boolean running;
+	
+	
+	/**
+	 * Creates and starts a new stub proxy on a free local port.
+	 * 
+	 * @param latency The latency added before connecting upstream in milliseconds.
+	 * 
+	 * @param errorRate The share of requests answered with a bad gateway, between 0 and 1.
+	 * 
+	 * @param maxConnections The maximum concurrent connections, further ones are refused.
+	 * 
+	 * @throws IOException When the proxy could not be bound.
+	 */
+	public StubProxy(long latency, double errorRate, int maxConnections) throws IOException {
+		if (maxConnections < 1 || errorRate < 0D || errorRate > 1D) {
+			throw new IllegalArgumentException("The connection limit has to be positive and the error rate between 0 and 1");
+		}
+		this.latency = latency;
+		this.errorRate = errorRate;
+		this.maxConnections = maxConnections;
+		this.slots = new Semaphore(maxConnections);
+		this.active = new AtomicInteger();
+		this.peak = new AtomicInteger();
+		this.accepted = new LongAdder();
+		this.refused = new LongAdder();
+		this.injectedErrors = new LongAdder();
+		this.serverSocket = new ServerSocket(0, 4096, InetAddress.getLoopbackAddress());
+		this.executor = StubHttpServer.newExecutor();
+		this.running = true;
+		
+		Thread acceptor = new Thread(this::accept, "stub-proxy-acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+	
+	/**
+	 * Accepts connections until the proxy is closed.
+	 */
+	private void accept() {
+		while (running) {
+			Socket client;
+			
+			try {
+				client = serverSocket.accept();
+			} catch (IOException ex) {
+				continue;
+			}
+			if (!slots.tryAcquire()) {
+				refused.increment();
+				respond(client, "503 Service Unavailable");
+				continue;
+			}
+			accepted.increment();
+			peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+			
+			executor.execute(() -> {
+				try {
+					handle(client);
+				} finally {
+					active.decrementAndGet();
+					slots.release();
+					closeQuietly(client);
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Handles a client connection.
+	 * 
+	 * @param client The client connection.
+	 */
+	private void handle(Socket client) {
+		try {
+			InputStream in = client.getInputStream();
+			String head = readHead(in);
+			
+			if (head.isEmpty()) {
+				return;
+			}
+			String[] requestLine = head.substring(0, head.indexOf("\r\n")).split(" ");
+			
+			if (requestLine.length < 3) {
+				respond(client, "400 Bad Request");
+				return;
+			}
+			if (latency > 0L) {
+				Thread.sleep(latency);
+			}
+			if (errorRate > 0D && ThreadLocalRandom.current().nextDouble() < errorRate) {
+				injectedErrors.increment();
+				respond(client, "502 Bad Gateway");
+				return;
+			}
+			boolean tunnel = "CONNECT".equalsIgnoreCase(requestLine[0]);
+			InetSocketAddress target;
+			String forwarded;
+			
+			if (tunnel) {
+				String[] hostPort = requestLine[1].split(":");
+				target = new InetSocketAddress(hostPort[0], Integer.parseInt(hostPort[1]));
+				forwarded = null;
+			} else {
+				URI uri = URI.create(requestLine[1]);
+				String path = (uri.getRawPath().isEmpty() ? "/" : uri.getRawPath()) + (Objects.isNull(uri.getRawQuery()) ? "" : "?" + uri.getRawQuery());
+				target = new InetSocketAddress(uri.getHost(), uri.getPort() < 0 ? 80 : uri.getPort());
+				forwarded = toOriginForm(requestLine[0] + " " + path + " " + requestLine[2], head);
+			}
+			try (Socket upstream = new Socket()) {
+				upstream.connect(target, 10_000);
+				
+				if (tunnel) {
+					write(client.getOutputStream(), "HTTP/1.1 200 Connection Established\r\n\r\n");
+				} else {
+					write(upstream.getOutputStream(), forwarded);
+				}
+				pipe(client, upstream);
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		} catch (IOException | RuntimeException ex) {
+			//The client or upstream dropped the connection
+		}
+	}
+	
+	/**
+	 * Rewrites a proxied request head for the origin server, closing the connection after the response.
+	 * Every request then opens it's own proxy connection, so latency, errors and the connection limit apply per request.
+	 * 
+	 * @param requestLine The origin form request line.
+	 * 
+	 * @param head The request head as received.
+	 * 
+	 * @return The request head to forward.
+	 */
+	private static String toOriginForm(String requestLine, String head) {
+		StringBuilder forwarded = new StringBuilder(head.length()).append(requestLine).append("\r\n");
+		
+		String[] lines = head.split("\r\n");
+		
+		for (int i = 1; i < lines.length; i++) {
+			String header = lines[i];
+			String name = header.contains(":") ? header.substring(0, header.indexOf(':')).trim() : null;
+			
+			if (Objects.isNull(name) || name.equalsIgnoreCase("Connection") || name.equalsIgnoreCase("Proxy-Connection") || name.equalsIgnoreCase("Keep-Alive")) {
+				continue;
+			}
+			forwarded.append(header).append("\r\n");
+		}
+		return forwarded.append("Connection: close\r\n\r\n").toString();
+	}
+	
+	/**
+	 * Copies bytes in both directions until either side closes.
+	 * 
+	 * @param client The client connection.
+	 * 
+	 * @param upstream The upstream connection.
+	 * 
+	 * @throws IOException When the connections could not be read.
+	 */
+	private void pipe(Socket client, Socket upstream) throws IOException {
+		InputStream clientIn = client.getInputStream();
+		OutputStream upstreamOut = upstream.getOutputStream();
+		
+		executor.execute(() -> {
+			try {
+				copy(clientIn, upstreamOut);
+			} catch (IOException ex) {
+				//Closed from the other direction
+			} finally {
+				closeQuietly(upstream);
+			}
+		});
+		copy(upstream.getInputStream(), client.getOutputStream());
+	}
+	
+	/**
+	 * Copies a stream until it ends.
+	 * 
+	 * @param in The input.
+	 * 
+	 * @param out The output.
+	 * 
+	 * @throws IOException When the streams could not be read or written.
+	 */
+	private static void copy(InputStream in, OutputStream out) throws IOException {
+		byte[] buffer = new byte[8192];
+		int read;
+		
+		try {
+			while ((read = in.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+				out.flush();
+			}
+		} catch (SocketException ex) {
+			//Closed while copying
+		}
+	}
+	
+	/**
+	 * Reads a request head up to and including the empty line.
+	 * 
+	 * @param in The input.
+	 * 
+	 * @return The request head, empty when the connection closed first.
+	 * 
+	 * @throws IOException When the head could not be read.
+	 */
+	private static String readHead(InputStream in) throws IOException {
+		ByteArrayOutputStream head = new ByteArrayOutputStream(512);
+		int last = 0;
+		int b;
+		
+		while (last != HEAD_END && (b = in.read()) != -1) {
+			head.write(b);
+			last = last << 8 | b;
+			
+			if (head.size() > MAX_HEAD) {
+				throw new IOException("Request head too large");
+			}
+		}
+		return last != HEAD_END ? "" : new String(head.toByteArray(), StandardCharsets.ISO_8859_1);
+	}
+	
+	/**
+	 * Answers a connection with an empty response and closes it.
+	 * 
+	 * @param socket The connection.
+	 * 
+	 * @param status The status line.
+	 */
+	private static void respond(Socket socket, String status) {
+		try {
+			write(socket.getOutputStream(), "HTTP/1.1 " + status + "\r\nContent-Length: 0\r\nConnection: close\r\n\r\n");
+		} catch (IOException ex) {
+			//The client is gone
+		} finally {
+			closeQuietly(socket);
+		}
+	}
+	
+	/**
+	 * Writes text to a stream.
+	 * 
+	 * @param out The stream.
+	 * 
+	 * @param text The text.
+	 * 
+	 * @throws IOException When the text could not be written.
+	 */
+	private static void write(OutputStream out, String text) throws IOException {
+		out.write(text.getBytes(StandardCharsets.ISO_8859_1));
+		out.flush();
+	}
+	
+	/**
+	 * Closes a socket, ignoring failures.
+	 * 
+	 * @param socket The socket.
+	 */
+	private static void closeQuietly(Socket socket) {
+		try {
+			socket.close();
+		} catch (IOException ex) {
+			//Already closed
+		}
+	}
+	
+	/**
+	 * Retrieves the address the proxy listens on.
+	 * 
+	 * @return The address.
+	 */
+	public InetSocketAddress getAddress() {
+		return new InetSocketAddress(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+	}
+	
+	/**
+	 * Retrieves the maximum concurrent connections.
+	 * 
+	 * @return The maximum.
+	 */
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+	
+	/**
+	 * Retrieves the amount of open connections.
+	 * 
+	 * @return The amount.
+	 */
+	public int getActive() {
+		return active.get();
+	}
+	
+	/**
+	 * Retrieves the highest amount of open connections.
+	 * 
+	 * @return The amount.
+	 */
+	public int getPeak() {
+		return peak.get();
+	}
+	
+	/**
+	 * Retrieves the amount of accepted connections.
+	 * 
+	 * @return The amount.
+	 */
+	public long getAccepted() {
+		return accepted.sum();
+	}
+	
+	/**
+	 * Retrieves the amount of connections refused because the limit was reached.
+	 * 
+	 * @return The amount.
+	 */
+	public long getRefused() {
+		return refused.sum();
+	}
+	
+	/**
+	 * Retrieves the amount of requests answered with an injected error.
+	 * 
+	 * @return The amount.
+	 */
+	public long getInjectedErrors() {
+		return injectedErrors.sum();
+	}
+	
+	@Override
+	public void close() {
+		running = false;
+		
+		try {
+			serverSocket.close();
+		} catch (IOException ex) {
+			//Already closed
+		}
+		executor.shutdownNow();
+		
+		try {
+			executor.awaitTermination(5L, TimeUnit.SECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
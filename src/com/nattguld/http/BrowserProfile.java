@@ -0,0 +1,92 @@
+package com.nattguld.http;
+
+import java.util.Objects;
+
+import com.google.gson.Gson;
+import com.nattguld.http.browser.Browser;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public final class BrowserProfile {
+	
+	/**
+	 * The gson instance used to copy browsers from their profile.
+	 */
+	private static final Gson GSON = new Gson();
+	
+	/**
+	 * The profile id.
+	 */
+	private final int id;
+	
+	/**
+	 * The serialized browser.
+	 */
+	private final String json;
+	
+	/**
+	 * The browser shared by the tasks drawing the profile, created on first use.
+	 */
+	private volatile Browser browser;
+	
+	
+	/**
+	 * Creates a new browser profile.
+	 * 
+	 * @param id The profile id.
+	 * 
+	 * @param json The serialized browser.
+	 */
+	BrowserProfile(int id, String json) {
+		this.id = id;
+		this.json = json;
+	}
+	
+	/**
+	 * Creates a new browser from the profile, owned by the caller.
+	 * 
+	 * @return The browser.
+	 */
+	public Browser newBrowser() {
+		return GSON.fromJson(json, Browser.class);
+	}
+	
+	/**
+	 * Retrieves the browser shared by everyone using the profile, e.g. tasks without a session of their own.
+	 * It must not be modified, use {@link #newBrowser()} for a browser of your own.
+	 * 
+	 * @return The browser.
+	 */
+	public Browser getBrowser() {
+		Browser shared = browser;
+		
+		if (Objects.isNull(shared)) {
+			shared = newBrowser();
+			browser = shared;
+		}
+		return shared;
+	}
+	
+	/**
+	 * Retrieves the profile id, -1 when the profile is not registered.
+	 * 
+	 * @return The profile id.
+	 */
+	public int getId() {
+		return id;
+	}
+	
+	/**
+	 * Retrieves the serialized browser.
+	 * 
+	 * @return The serialized browser.
+	 */
+	public String getJson() {
+		return json;
+	}
+
+}
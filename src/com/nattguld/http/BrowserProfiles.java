@@ -0,0 +1,213 @@
+package com.nattguld.http;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.nattguld.http.browser.Browser;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public class BrowserProfiles {
+	
+	/**
+	 * The singleton instance.
+	 */
+	private static final BrowserProfiles singleton = new BrowserProfiles(4096, 32);
+	
+	/**
+	 * The index of the pool for any platform.
+	 */
+	private static final int ANY_POOL = 0;
+	
+	/**
+	 * The index of the desktop pool.
+	 */
+	private static final int DESKTOP_POOL = 1;
+	
+	/**
+	 * The index of the mobile pool.
+	 */
+	private static final int MOBILE_POOL = 2;
+	
+	/**
+	 * The gson instance used to register generated browsers.
+	 */
+	private static final Gson GSON = new Gson();
+	
+	/**
+	 * The maximum amount of registered profiles.
+	 */
+	private final int maxProfiles;
+	
+	/**
+	 * The registered profiles by their serialized browser.
+	 */
+	private final Map<String, BrowserProfile> profiles;
+	
+	/**
+	 * The registered profiles by their id.
+	 */
+	private final Map<Integer, BrowserProfile> ids;
+	
+	/**
+	 * The id of the next registered profile.
+	 */
+	private final AtomicInteger nextId;
+	
+	/**
+	 * The amount of profiles generated per pool.
+	 */
+	private final int poolSize;
+	
+	/**
+	 * The pools of profiles to draw from, for any platform, desktop and mobile.
+	 */
+	private final AtomicReferenceArray<BrowserProfile[]> pools;
+	
+	/**
+	 * Serializes building the pools.
+	 */
+	private final ReentrantLock poolLock;
+	
+	
+	/**
+	 * Creates a new browser profile registry.
+	 * 
+	 * @param maxProfiles The maximum amount of registered profiles.
+	 * 
+	 * @param poolSize The amount of profiles generated per pool to draw from.
+	 */
+	public BrowserProfiles(int maxProfiles, int poolSize) {
+		if (poolSize < 1) {
+			throw new IllegalArgumentException("At least one profile per pool is required");
+		}
+		this.maxProfiles = maxProfiles;
+		this.poolSize = poolSize;
+		this.profiles = new ConcurrentHashMap<>();
+		this.ids = new ConcurrentHashMap<>();
+		this.nextId = new AtomicInteger();
+		this.pools = new AtomicReferenceArray<>(3);
+		this.poolLock = new ReentrantLock();
+	}
+	
+	/**
+	 * Draws a random profile from the pool of generated browsers, generating the pool on first use.
+	 * 
+	 * @return The browser profile.
+	 */
+	public BrowserProfile draw() {
+		return draw(ANY_POOL, Browser::new);
+	}
+	
+	/**
+	 * Draws a random profile for a platform from the pool of generated browsers, generating the pool on first use.
+	 * 
+	 * @param mobile Whether to draw a mobile profile or not.
+	 * 
+	 * @return The browser profile.
+	 */
+	public BrowserProfile draw(boolean mobile) {
+		return mobile ? draw(MOBILE_POOL, () -> new Browser(true)) : draw(DESKTOP_POOL, () -> new Browser(false));
+	}
+	
+	/**
+	 * Draws a random profile from a pool, generating and registering the pool on first use.
+	 * 
+	 * @param index The pool index.
+	 * 
+	 * @param generator Generates a browser.
+	 * 
+	 * @return The browser profile.
+	 */
+	private BrowserProfile draw(int index, Supplier<Browser> generator) {
+		BrowserProfile[] pool = pools.get(index);
+		
+		if (Objects.isNull(pool)) {
+			poolLock.lock();
+			
+			try {
+				pool = pools.get(index);
+				
+				if (Objects.isNull(pool)) {
+					pool = new BrowserProfile[poolSize];
+					
+					for (int i = 0; i < pool.length; i++) {
+						pool[i] = intern(GSON.toJsonTree(generator.get()));
+					}
+					pools.set(index, pool);
+				}
+			} finally {
+				poolLock.unlock();
+			}
+		}
+		return pool[ThreadLocalRandom.current().nextInt(pool.length)];
+	}
+	
+	/**
+	 * Retrieves the profile of a serialized browser, registering it the first time it's seen.
+	 * Once the registry is full an unregistered profile is returned.
+	 * Profiles are immutable, sessions use their own copy through {@link BrowserProfile#newBrowser()}.
+	 * 
+	 * @param json The serialized browser.
+	 * 
+	 * @return The browser profile.
+	 */
+	public BrowserProfile intern(JsonElement json) {
+		String key = json.toString();
+		BrowserProfile profile = profiles.get(key);
+		
+		if (Objects.nonNull(profile)) {
+			return profile;
+		}
+		if (profiles.size() >= maxProfiles) {
+			return new BrowserProfile(-1, key);
+		}
+		return profiles.computeIfAbsent(key, k -> {
+			BrowserProfile registered = new BrowserProfile(nextId.getAndIncrement(), k);
+			ids.put(registered.getId(), registered);
+			return registered;
+		});
+	}
+	
+	/**
+	 * Retrieves a registered profile.
+	 * 
+	 * @param id The profile id.
+	 * 
+	 * @return The browser profile, null when unknown.
+	 */
+	public BrowserProfile getProfile(int id) {
+		return ids.get(id);
+	}
+	
+	/**
+	 * Retrieves the amount of registered profiles.
+	 * 
+	 * @return The amount.
+	 */
+	public int getProfileCount() {
+		return profiles.size();
+	}
+	
+	/**
+	 * Retrieves the singleton instance.
+	 * 
+	 * @return The singleton instance.
+	 */
+	public static BrowserProfiles getSingleton() {
+		return singleton;
+	}
+
+}
@@ -0,0 +1,66 @@
+package com.nattguld.http;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.nattguld.http.proxies.HttpProxy;
+import com.nattguld.http.proxies.standard.StandardProxyManager;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public class ProxyRegistry {
+	
+	/**
+	 * The versions of the proxies that were invalidated by their UUID, proxies that never were are at version 0.
+	 */
+	private static final Map<String, Long> versions = new ConcurrentHashMap<>();
+	
+	/**
+	 * Hands out the versions, so an invalidated proxy never returns to a version a session cached it at.
+	 */
+	private static final AtomicLong sequence = new AtomicLong();
+	
+	
+	/**
+	 * Looks up a proxy in the proxy manager.
+	 * 
+	 * @param proxyUUID The proxy UUID.
+	 * 
+	 * @return The proxy.
+	 */
+	public static HttpProxy getByUUID(String proxyUUID) {
+		return StandardProxyManager.getSingleton().getByUUID(proxyUUID);
+	}
+	
+	/**
+	 * Invalidates a proxy cached by sessions, only the sessions bound to it look it up again on next use.
+	 * Has to be called whenever the proxy is flagged, removed from or replaced in the proxy manager.
+	 * 
+	 * @param proxyUUID The proxy UUID.
+	 */
+	public static void invalidateProxy(String proxyUUID) {
+		if (Objects.isNull(proxyUUID)) {
+			return;
+		}
+		versions.put(proxyUUID, sequence.incrementAndGet());
+	}
+	
+	/**
+	 * Retrieves the version of a proxy, which changes whenever it's invalidated.
+	 * 
+	 * @param proxyUUID The proxy UUID.
+	 * 
+	 * @return The version.
+	 */
+	public static long getVersion(String proxyUUID) {
+		Long version = versions.get(proxyUUID);
+		return Objects.isNull(version) ? 0L : version;
+	}
+
+}
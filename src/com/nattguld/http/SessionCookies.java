@@ -0,0 +1,825 @@
+package com.nattguld.http;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.nattguld.http.content.cookies.Cookie;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public class SessionCookies extends AbstractList<Cookie> implements RandomAccess {
+	
+	/**
+	 * Guards the cookies, tasks sharing a session merge into them concurrently.
+	 * A lock rather than monitors, so virtual threads waiting for it don't pin their carrier.
+	 */
+	private final ReentrantLock lock;
+	
+	/**
+	 * The cookie slots in the order the cookies were added.
+	 */
+	private final List<Slot> slots;
+	
+	/**
+	 * The cookie positions by their name, domain and path key.
+	 * Keys are pooled so sessions holding the same cookies share them.
+	 */
+	private final Map<String, Integer> positions;
+	
+	/**
+	 * The name entries by case folded cookie name.
+	 */
+	private final Map<String, NameEntry> names;
+	
+	/**
+	 * The version, bumped on every change.
+	 */
+	private long version;
+	
+	/**
+	 * The current sync pass.
+	 */
+	private long syncPass;
+	
+	/**
+	 * The last snapshot taken, shared until the cookies change.
+	 */
+	private Snapshot snapshot;
+	
+	
+	/**
+	 * Creates new session cookies.
+	 */
+	public SessionCookies() {
+		this.slots = new ArrayList<Slot>();
+		this.positions = new HashMap<String, Integer>();
+		this.names = new HashMap<String, NameEntry>();
+		this.lock = new ReentrantLock();
+	}
+	
+	/**
+	 * Creates new session cookies.
+	 * 
+	 * @param cookies The initial cookies.
+	 */
+	public SessionCookies(Collection<Cookie> cookies) {
+		this();
+		
+		if (Objects.nonNull(cookies)) {
+			addAll(cookies);
+		}
+	}
+	
+	/**
+	 * Adds or if a cookie with the same name, domain and path exists replaces a cookie.
+	 * 
+	 * @param cookie The cookie.
+	 * 
+	 * @return The replaced cookie if any.
+	 */
+	public Cookie addOrReplace(Cookie cookie) {
+		lock.lock();
+		
+		try {
+			String key = getKey(cookie);
+			Integer pos = positions.get(key);
+			
+			if (Objects.nonNull(pos)) {
+				return slots.get(pos).update(cookie);
+			}
+			append(new State(cookie, key));
+			return null;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Brings the cookies in line with the given ones, e.g. the contents of a client's cookie jar.
+	 * Only cookies that were added, set again or changed in value, or disappeared are touched.
+	 * 
+	 * @param current The current cookies.
+	 * 
+	 * @return Whether anything changed or not.
+	 */
+	public boolean sync(Collection<Cookie> current) {
+		lock.lock();
+		
+		try {
+			long before = version;
+			long pass = ++syncPass;
+			int seen = 0;
+			
+			for (Cookie cookie : current) {
+				String key = getKey(cookie);
+				Integer pos = positions.get(key);
+				
+				if (Objects.isNull(pos)) {
+					pos = append(new State(cookie, key));
+				} else if (!slots.get(pos).state.matches(cookie)) {
+					slots.get(pos).update(cookie);
+				}
+				if (slots.get(pos).pass != pass) {
+					slots.get(pos).pass = pass;
+					seen++;
+				}
+			}
+			if (seen < slots.size()) {
+				for (int i = slots.size() - 1; i >= 0; i--) {
+					if (slots.get(i).pass != pass) {
+						remove(i);
+					}
+				}
+			}
+			return version != before;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Merges the changes a client made to the cookies it imported from a snapshot.
+	 * Unlike a sync, cookies the client didn't touch keep whatever other clients wrote in the meantime.
+	 * Cookies the client added, set again or changed in value are written, cookies it dropped are removed unless another client changed them since.
+	 * 
+	 * @param base The snapshot the client imported.
+	 * 
+	 * @param current The current cookies of the client.
+	 * 
+	 * @return Whether anything changed or not.
+	 */
+	public boolean merge(Snapshot base, Collection<Cookie> current) {
+		lock.lock();
+		
+		try {
+			long before = version;
+			Set<String> seen = new HashSet<>();
+			
+			for (Cookie cookie : current) {
+				String key = getKey(cookie);
+				seen.add(key);
+				
+				State baseState = base.states.get(key);
+				
+				if (Objects.nonNull(baseState) && baseState.matches(cookie)) {
+					continue;
+				}
+				Integer pos = positions.get(key);
+				
+				if (Objects.isNull(pos)) {
+					append(new State(cookie, key));
+				} else if (!slots.get(pos).state.matches(cookie)) {
+					slots.get(pos).update(cookie);
+				}
+			}
+			for (Map.Entry<String, State> entry : base.states.entrySet()) {
+				if (seen.contains(entry.getKey())) {
+					continue;
+				}
+				Integer pos = positions.get(entry.getKey());
+				
+				if (Objects.nonNull(pos) && slots.get(pos).state == entry.getValue()) {
+					remove((int)pos);
+				}
+			}
+			return version != before;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Takes a snapshot of the cookies, e.g. to import into a client while other clients keep changing them.
+	 * The snapshot is shared until the cookies change.
+	 * 
+	 * @return The snapshot.
+	 */
+	public Snapshot snapshot() {
+		lock.lock();
+		
+		try {
+			if (Objects.nonNull(snapshot) && snapshot.version == version) {
+				return snapshot;
+			}
+			List<Cookie> cookies = new ArrayList<>(slots.size());
+			Map<String, State> states = new HashMap<>();
+			
+			for (Slot slot : slots) {
+				cookies.add(slot.state.cookie);
+				states.put(slot.state.key, slot.state);
+			}
+			snapshot = new Snapshot(Collections.unmodifiableList(cookies), states, version);
+			return snapshot;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Retrieves the version, which changes whenever a cookie is added, replaced or removed.
+	 * 
+	 * @return The version.
+	 */
+	public long getVersion() {
+		lock.lock();
+		
+		try {
+			return version;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Retrieves a cookie by it's name.
+	 * 
+	 * @param cookieName The cookie name.
+	 * 
+	 * @return The cookie.
+	 */
+	public Cookie getByName(String cookieName) {
+		lock.lock();
+		
+		try {
+			if (Objects.isNull(cookieName)) {
+				return null;
+			}
+			NameEntry entry = names.get(foldName(cookieName));
+			
+			if (Objects.isNull(entry)) {
+				return null;
+			}
+			if (entry.pos < 0) {
+				entry.pos = findByName(cookieName);
+			}
+			return slots.get(entry.pos).state.cookie;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Retrieves a cookie by it's name, domain and path.
+	 * 
+	 * @param cookieName The cookie name.
+	 * 
+	 * @param domain The domain.
+	 * 
+	 * @param path The path.
+	 * 
+	 * @return The cookie.
+	 */
+	public Cookie get(String cookieName, String domain, String path) {
+		lock.lock();
+		
+		try {
+			Integer pos = positions.get(getKey(cookieName, domain, path));
+			return Objects.isNull(pos) ? null : slots.get(pos).state.cookie;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Iterates over a snapshot of the cookies, so changes made meanwhile neither fail nor tear the iteration.
+	 * Removing through the iterator removes the cookie from the session cookies.
+	 */
+	@Override
+	public Iterator<Cookie> iterator() {
+		return new SnapshotIterator(snapshot().getCookies().iterator());
+	}
+	
+	/**
+	 * Appends a cookie unless one with the same name, domain and path is present, use {@link #addOrReplace(Cookie)} to replace it.
+	 */
+	@Override
+	public boolean add(Cookie cookie) {
+		lock.lock();
+		
+		try {
+			if (positions.containsKey(getKey(Objects.requireNonNull(cookie)))) {
+				return false;
+			}
+			addOrReplace(cookie);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	@Override
+	public Cookie set(int index, Cookie cookie) {
+		lock.lock();
+		
+		try {
+			Slot slot = slots.get(index);
+			String key = getKey(Objects.requireNonNull(cookie));
+			
+			if (key.equals(slot.state.key)) {
+				return slot.update(cookie);
+			}
+			if (positions.containsKey(key)) {
+				throw new IllegalArgumentException("Cookie " + cookie.getName() + " is already present for it's domain and path");
+			}
+			Cookie old = slot.state.cookie;
+			
+			unindex(slot.state, index);
+			slot.state = new State(cookie, key);
+			index(slot.state, index);
+			version++;
+			return old;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	@Override
+	public Cookie remove(int index) {
+		lock.lock();
+		
+		try {
+			State removed = slots.remove(index).state;
+			
+			unindex(removed, index);
+			
+			for (int i = index; i < slots.size(); i++) {
+				move(slots.get(i).state, i + 1, i);
+			}
+			modCount++;
+			version++;
+			return removed.cookie;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	@Override
+	public boolean remove(Object o) {
+		lock.lock();
+		
+		try {
+			int pos = indexOf(o);
+			
+			if (pos < 0) {
+				return false;
+			}
+			remove(pos);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	@Override
+	public int indexOf(Object o) {
+		lock.lock();
+		
+		try {
+			if (!(o instanceof Cookie)) {
+				return -1;
+			}
+			Integer pos = positions.get(getKey((Cookie)o));
+			return Objects.nonNull(pos) && slots.get(pos).state.cookie == o ? pos : -1;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	@Override
+	public int lastIndexOf(Object o) {
+		lock.lock();
+		
+		try {
+			return indexOf(o);
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	@Override
+	public boolean contains(Object o) {
+		lock.lock();
+		
+		try {
+			return indexOf(o) >= 0;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	@Override
+	public void clear() {
+		lock.lock();
+		
+		try {
+			if (slots.isEmpty()) {
+				return;
+			}
+			slots.clear();
+			positions.clear();
+			names.clear();
+			modCount++;
+			version++;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	@Override
+	public Cookie get(int index) {
+		lock.lock();
+		
+		try {
+			return slots.get(index).state.cookie;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	@Override
+	public int size() {
+		lock.lock();
+		
+		try {
+			return slots.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Appends a cookie and indexes it.
+	 * 
+	 * @param state The state of the cookie.
+	 * 
+	 * @return The position of the cookie.
+	 */
+	private int append(State state) {
+		slots.add(new Slot(state));
+		index(state, slots.size() - 1);
+		modCount++;
+		version++;
+		return slots.size() - 1;
+	}
+	
+	/**
+	 * Adds the index entries of a cookie.
+	 * 
+	 * @param state The state of the cookie.
+	 * 
+	 * @param pos The position of the cookie.
+	 */
+	private void index(State state, int pos) {
+		positions.put(state.key, pos);
+		
+		NameEntry entry = names.get(state.name);
+		
+		if (Objects.isNull(entry)) {
+			entry = new NameEntry();
+			names.put(state.name, entry);
+		}
+		entry.count++;
+		entry.pos = pos;
+	}
+	
+	/**
+	 * Removes the index entries of a cookie.
+	 * 
+	 * @param state The state of the cookie.
+	 * 
+	 * @param pos The position of the cookie.
+	 */
+	private void unindex(State state, int pos) {
+		positions.remove(state.key);
+		
+		NameEntry entry = names.get(state.name);
+		
+		if (--entry.count <= 0) {
+			names.remove(state.name);
+			return;
+		}
+		if (entry.pos == pos) {
+			entry.pos = -1;
+		}
+	}
+	
+	/**
+	 * Updates the index entries of a cookie that moved.
+	 * 
+	 * @param state The state of the cookie.
+	 * 
+	 * @param from The old position.
+	 * 
+	 * @param to The new position.
+	 */
+	private void move(State state, int from, int to) {
+		positions.put(state.key, to);
+		
+		NameEntry entry = names.get(state.name);
+		
+		if (entry.pos == from) {
+			entry.pos = to;
+		}
+	}
+	
+	/**
+	 * Scans for the position of a cookie with the given name.
+	 * Only required when a name is shared across domains or paths and the indexed one was removed.
+	 * 
+	 * @param cookieName The cookie name.
+	 * 
+	 * @return The position.
+	 */
+	private int findByName(String cookieName) {
+		for (int i = 0; i < slots.size(); i++) {
+			if (slots.get(i).state.cookie.getName().equalsIgnoreCase(cookieName)) {
+				return i;
+			}
+		}
+		throw new IllegalStateException("Name index out of sync for cookie " + cookieName);
+	}
+	
+	/**
+	 * Retrieves the index key of a cookie.
+	 * 
+	 * @param cookie The cookie.
+	 * 
+	 * @return The key.
+	 */
+	private static String getKey(Cookie cookie) {
+		return getKey(cookie.getName(), cookie.getDomain(), cookie.getPath());
+	}
+	
+	/**
+	 * Retrieves the index key for a cookie name, domain and path.
+	 * 
+	 * @param cookieName The cookie name.
+	 * 
+	 * @param domain The domain.
+	 * 
+	 * @param path The path.
+	 * 
+	 * @return The key.
+	 */
+	private static String getKey(String cookieName, String domain, String path) {
+		return StringPool.canonicalize(foldName(cookieName) + ';' + (Objects.isNull(domain) ? "" : domain.toLowerCase(Locale.ROOT)) + ';' + (Objects.isNull(path) ? "" : path));
+	}
+	
+	/**
+	 * Case folds a cookie name.
+	 * 
+	 * @param cookieName The cookie name.
+	 * 
+	 * @return The folded name.
+	 */
+	private static String foldName(String cookieName) {
+		return StringPool.canonicalize(cookieName.toLowerCase(Locale.ROOT));
+	}
+	
+	
+	/**
+	 * Holds the state a cookie was last synced with.
+	 */
+	private final class Slot {
+		
+		/**
+		 * The state of the cookie.
+		 */
+		private State state;
+		
+		/**
+		 * The last sync pass the cookie was seen in.
+		 */
+		private long pass;
+		
+		
+		/**
+		 * Creates a new slot.
+		 * 
+		 * @param state The state of the cookie.
+		 */
+		private Slot(State state) {
+			this.state = state;
+		}
+		
+		/**
+		 * Stores a new cookie with the same name, domain and path in the slot.
+		 * 
+		 * @param cookie The new cookie.
+		 * 
+		 * @return The old cookie.
+		 */
+		private Cookie update(Cookie cookie) {
+			Cookie old = state.cookie;
+			this.state = new State(cookie, state.key, state.name);
+			version++;
+			return old;
+		}
+	
+	}
+	
+	/**
+	 * A cookie along with the value it had when it was stored and it's index keys, so snapshots and moves don't rebuild them.
+	 * The cookie type exposes no other attributes, a cookie jar creates a new cookie when the server sets it again, so expiry or flag updates show as a different cookie.
+	 * The value is kept as well, cookies may be mutated in place by a cookie jar.
+	 */
+	private static final class State {
+		
+		/**
+		 * The cookie.
+		 */
+		private final Cookie cookie;
+		
+		/**
+		 * The value of the cookie when it was stored.
+		 */
+		private final String value;
+		
+		/**
+		 * The name, domain and path key.
+		 */
+		private final String key;
+		
+		/**
+		 * The case folded name.
+		 */
+		private final String name;
+		
+		
+		/**
+		 * Creates a new state.
+		 * 
+		 * @param cookie The cookie.
+		 * 
+		 * @param key The name, domain and path key.
+		 */
+		private State(Cookie cookie, String key) {
+			this(cookie, key, foldName(cookie.getName()));
+		}
+		
+		/**
+		 * Creates a new state.
+		 * 
+		 * @param cookie The cookie.
+		 * 
+		 * @param key The name, domain and path key.
+		 * 
+		 * @param name The case folded name.
+		 */
+		private State(Cookie cookie, String key, String name) {
+			this.cookie = cookie;
+			this.value = cookie.getValue();
+			this.key = key;
+			this.name = name;
+		}
+		
+		/**
+		 * Retrieves whether a cookie is unchanged compared to this state or not.
+		 * 
+		 * @param cookie The cookie.
+		 * 
+		 * @return The result.
+		 */
+		private boolean matches(Cookie cookie) {
+			return this.cookie == cookie && Objects.equals(value, cookie.getValue());
+		}
+	
+	}
+	
+	/**
+	 * Iterates over the cookies of a snapshot.
+	 */
+	private final class SnapshotIterator implements Iterator<Cookie> {
+		
+		/**
+		 * The iterator over the snapshot's cookies.
+		 */
+		private final Iterator<Cookie> cookies;
+		
+		/**
+		 * The last returned cookie, null when it can't be removed.
+		 */
+		private Cookie last;
+		
+		
+		/**
+		 * Creates a new snapshot iterator.
+		 * 
+		 * @param cookies The iterator over the snapshot's cookies.
+		 */
+		private SnapshotIterator(Iterator<Cookie> cookies) {
+			this.cookies = cookies;
+		}
+		
+		@Override
+		public boolean hasNext() {
+			return cookies.hasNext();
+		}
+		
+		@Override
+		public Cookie next() {
+			last = cookies.next();
+			return last;
+		}
+		
+		@Override
+		public void remove() {
+			if (Objects.isNull(last)) {
+				throw new IllegalStateException();
+			}
+			SessionCookies.this.remove(last);
+			last = null;
+		}
+	
+	}
+	
+	/**
+	 * The cookies at a given version along with their state at that time.
+	 */
+	public static final class Snapshot {
+		
+		/**
+		 * The cookies.
+		 */
+		private final List<Cookie> cookies;
+		
+		/**
+		 * The cookie states by their name, domain and path key.
+		 */
+		private final Map<String, State> states;
+		
+		/**
+		 * The version the snapshot was taken at.
+		 */
+		private final long version;
+		
+		
+		/**
+		 * Creates a new snapshot.
+		 * 
+		 * @param cookies The cookies.
+		 * 
+		 * @param states The cookie states by their name, domain and path key.
+		 * 
+		 * @param version The version the snapshot was taken at.
+		 */
+		private Snapshot(List<Cookie> cookies, Map<String, State> states, long version) {
+			this.cookies = cookies;
+			this.states = states;
+			this.version = version;
+		}
+		
+		/**
+		 * Retrieves the cookies.
+		 * 
+		 * @return The cookies.
+		 */
+		public List<Cookie> getCookies() {
+			return cookies;
+		}
+		
+		/**
+		 * Retrieves the version the snapshot was taken at.
+		 * 
+		 * @return The version.
+		 */
+		public long getVersion() {
+			return version;
+		}
+	
+	}
+	
+	/**
+	 * Tracks the cookies sharing a case folded name.
+	 */
+	private static final class NameEntry {
+		
+		/**
+		 * The position of a cookie carrying the name, -1 when it has to be looked up.
+		 */
+		private int pos = -1;
+		
+		/**
+		 * The amount of cookies carrying the name.
+		 */
+		private int count;
+	
+	}
+
+}
@@ -2,14 +2,21 @@ package com.nattguld.http;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
 import com.nattguld.data.json.JsonReader;
+import com.nattguld.data.json.JsonWriter;
 import com.nattguld.http.browser.Browser;
 import com.nattguld.http.content.cookies.Cookie;
 import com.nattguld.http.proxies.HttpProxy;
-import com.nattguld.http.proxies.standard.StandardProxyManager;
 
 /**
  * 
@@ -24,8 +31,14 @@ public class SessionData {
 	 */
 	private Browser browser;
 	
+	/**
+	 * The shared profile the browser is drawn from, copied into the browser once it's first accessed.
+	 */
+	private transient BrowserProfile browserProfile;
+	
 	/**
 	 * The cookies to attach to the session.
+	 * Declared as a list so it keeps serializing as a plain json array.
 	 */
 	private List<Cookie> cookies;
 	
@@ -39,11 +52,52 @@ public class SessionData {
 	 */
 	private String lastReferer;
 	
+	/**
+	 * Whether the session is known to be logged in, null if never verified.
+	 */
+	private SessionValidity validity;
+	
 	/**
 	 * The proxy.
 	 */
 	private transient HttpProxy proxy;
 	
+	/**
+	 * The registry version of the proxy at the time it was resolved.
+	 */
+	private transient long proxyVersion = -1;
+	
+	/**
+	 * Whether a field other than the cookies changed since the last save.
+	 */
+	private transient boolean dirty = true;
+	
+	/**
+	 * The cookies version at the last save.
+	 */
+	private transient long savedCookiesVersion = -1;
+	
+	/**
+	 * The serialized session until the browser, cookies or validity are first accessed.
+	 */
+	private transient JsonObject stored;
+	
+	/**
+	 * Deserializes the stored session through the gson instance of the resource it was read from.
+	 */
+	private transient Supplier<SessionData> loader;
+	
+	/**
+	 * The permit handed out by session leases, created on first lease.
+	 */
+	private transient Semaphore leasePermit;
+	
+	/**
+	 * Guards the session, tasks sharing it read and modify it concurrently.
+	 * Tasks on virtual threads waiting for it are unmounted, where waiting on the monitor pinned them.
+	 */
+	private final transient ReentrantLock lock = new ReentrantLock();
+	
 	
 	/**
 	 * Creates a new session.
@@ -58,17 +112,38 @@ public class SessionData {
 	 * @param mobile Whether the session is on mobile or not.
 	 */
 	public SessionData(boolean mobile) {
-		this(new Browser(mobile));
+		this.browserProfile = BrowserProfiles.getSingleton().draw(mobile);
+		this.cookies = new SessionCookies();
 	}
 	
 	/**
 	 * Creates a new session.
 	 * 
-	 * @param mobile Whether the session is on mobile or not.
+	 * @param browser The browser to use.
 	 */
 	public SessionData(Browser browser) {
 		this.browser = browser;
-		this.cookies = new ArrayList<Cookie>();
+		this.cookies = new SessionCookies();
+	}
+	
+	/**
+	 * Creates a session from it's serialized form, deferring the browser, cookies and validity until they're accessed.
+	 * 
+	 * @param json The serialized session.
+	 * 
+	 * @param loader Deserializes the full session.
+	 */
+	private SessionData(JsonObject json, Supplier<SessionData> loader) {
+		this.stored = json;
+		this.loader = loader;
+		this.proxyUUID = getString(json, "proxyUUID");
+		this.lastReferer = getString(json, "lastReferer");
+		
+		JsonElement rawBrowser = getMember(json, "browser");
+		
+		if (Objects.nonNull(rawBrowser)) {
+			this.browserProfile = BrowserProfiles.getSingleton().intern(rawBrowser);
+		}
 	}
 	
 	/**
@@ -89,8 +164,17 @@ public class SessionData {
 	 * @return The session.
 	 */
 	public SessionData resetBrowser() {
-		setBrowser(new Browser(getBrowser().isMobile()));
-		return this;
+		boolean mobile = getBrowser().isMobile();
+		lock.lock();
+		
+		try {
+			this.browser = null;
+			this.browserProfile = BrowserProfiles.getSingleton().draw(mobile);
+			this.dirty = true;
+			return this;
+		} finally {
+			lock.unlock();
+		}
 	}
 	
 	/**
@@ -101,8 +185,17 @@ public class SessionData {
 	 * @return The session.
 	 */
 	public SessionData setBrowser(Browser browser) {
-		this.browser = browser;
-		return this;
+		lock.lock();
+		
+		try {
+			load();
+			this.browser = browser;
+			this.browserProfile = null;
+			this.dirty = true;
+			return this;
+		} finally {
+			lock.unlock();
+		}
 	}
 	
 	/**
@@ -111,7 +204,21 @@ public class SessionData {
 	 * @return The browser.
 	 */
 	public Browser getBrowser() {
-		return browser;
+		lock.lock();
+		
+		try {
+			load();
+			
+			if (Objects.isNull(browser)) {
+				if (Objects.isNull(browserProfile)) {
+					browserProfile = BrowserProfiles.getSingleton().draw(false);
+				}
+				browser = browserProfile.newBrowser();
+			}
+			return browser;
+		} finally {
+			lock.unlock();
+		}
 	}
 	
 	/**
@@ -120,12 +227,12 @@ public class SessionData {
 	 * @return The session.
 	 */
 	public SessionData clearCookies() {
-		cookies.clear();
+		getCookies().clear();
 		return this;
 	}
 	
 	/**
-	 * Adds or if it already exists replaces a cookie.
+	 * Adds or if one with the same name, domain and path exists replaces a cookie.
 	 * 
 	 * @param cookie The cookie.
 	 * 
@@ -135,12 +242,7 @@ public class SessionData {
 		if (Objects.isNull(cookie)) {
 			return this;
 		}
-		Cookie exists = getCookieByName(cookie.getName());
-		
-		if (Objects.nonNull(exists)) {
-			cookies.remove(exists);
-		}
-		cookies.add(cookie);
+		getSessionCookies().addOrReplace(cookie);
 		return this;
 	}
 	
@@ -152,12 +254,7 @@ public class SessionData {
 	 * @return The cookie.
 	 */
 	public Cookie getCookieByName(String cookieName) {
-		for (Cookie cookie : getCookies()) {
-			if (cookie.getName().equalsIgnoreCase(cookieName)) {
-				return cookie;
-			}
-		}
-		return null;
+		return getSessionCookies().getByName(cookieName);
 	}
 	
 	/**
@@ -166,7 +263,27 @@ public class SessionData {
 	 * @return The cookies.
 	 */
 	public List<Cookie> getCookies() {
-		return cookies;
+		return getSessionCookies();
+	}
+	
+	/**
+	 * Retrieves the cookies along with their indexed lookups, snapshots and merging.
+	 * 
+	 * @return The session cookies.
+	 */
+	public SessionCookies getSessionCookies() {
+		lock.lock();
+		
+		try {
+			load();
+			
+			if (!(cookies instanceof SessionCookies)) {
+				cookies = new SessionCookies(cookies);
+			}
+			return (SessionCookies)cookies;
+		} finally {
+			lock.unlock();
+		}
 	}
 	
 	
@@ -178,8 +295,18 @@ public class SessionData {
 	 * @return The session data.
 	 */
 	public SessionData setProxyUUID(String proxyUUID) {
-		this.proxyUUID = proxyUUID;
-		return this;
+		lock.lock();
+		
+		try {
+			if (!Objects.equals(this.proxyUUID, proxyUUID)) {
+				this.proxy = null;
+				this.dirty = true;
+			}
+			this.proxyUUID = proxyUUID;
+			return this;
+		} finally {
+			lock.unlock();
+		}
 	}
 	
 	/**
@@ -188,19 +315,58 @@ public class SessionData {
 	 * @return The proxy UUID.
 	 */
 	public String getProxyUUID() {
-		return proxyUUID;
+		lock.lock();
+		
+		try {
+			return proxyUUID;
+		} finally {
+			lock.unlock();
+		}
 	}
 	
 	/**
 	 * Retrieves the proxy.
+	 * It's resolved outside the session's lock, so a slow lookup doesn't hold up other tasks sharing the session.
 	 * 
 	 * @return The proxy.
 	 */
 	public HttpProxy getProxy() {
-		if (!hasProxy()) {
+		String uuid;
+		HttpProxy cached;
+		long cachedVersion;
+		lock.lock();
+		
+		try {
+			uuid = proxyUUID;
+			cached = proxy;
+			cachedVersion = proxyVersion;
+		} finally {
+			lock.unlock();
+		}
+		if (Objects.isNull(uuid)) {
+			return null;
+		}
+		long version = ProxyRegistry.getVersion(uuid);
+		
+		if (Objects.nonNull(cached) && cachedVersion == version && uuid.equals(cached.getUUID())) {
+			return cached;
+		}
+		HttpProxy resolved = ProxyRegistry.getByUUID(uuid);
+		
+		if (Objects.isNull(resolved)) {
 			return null;
 		}
-		return StandardProxyManager.getSingleton().getByUUID(getProxyUUID());
+		lock.lock();
+		
+		try {
+			if (uuid.equals(proxyUUID)) {
+				this.proxy = resolved;
+				this.proxyVersion = version;
+			}
+		} finally {
+			lock.unlock();
+		}
+		return resolved;
 	}
 	
 	/**
@@ -220,8 +386,17 @@ public class SessionData {
 	 * @return The session data.
 	 */
 	public SessionData setLastReferer(String lastReferer) {
-		this.lastReferer = lastReferer;
-		return this;
+		lock.lock();
+		
+		try {
+			if (!Objects.equals(this.lastReferer, lastReferer)) {
+				this.dirty = true;
+			}
+			this.lastReferer = lastReferer;
+			return this;
+		} finally {
+			lock.unlock();
+		}
 	}
 	
 	/**
@@ -230,7 +405,334 @@ public class SessionData {
 	 * @return The last referer.
 	 */
 	public String getLastReferer() {
-		return lastReferer;
+		lock.lock();
+		
+		try {
+			return lastReferer;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Modifies the validity.
+	 * 
+	 * @param validity The new validity.
+	 * 
+	 * @return The session data.
+	 */
+	public SessionData setValidity(SessionValidity validity) {
+		lock.lock();
+		
+		try {
+			load();
+			
+			if (!Objects.equals(getValidity(), validity)) {
+				this.dirty = true;
+			}
+			this.validity = validity;
+			return this;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Retrieves the validity.
+	 * 
+	 * @return The validity.
+	 */
+	public SessionValidity getValidity() {
+		lock.lock();
+		
+		try {
+			load();
+			return Objects.isNull(validity) ? SessionValidity.NONE : validity;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Invalidates the session, so it has to be verified again before it's trusted.
+	 * 
+	 * @return The session data.
+	 */
+	public SessionData invalidate() {
+		lock.lock();
+		
+		try {
+			return setValidity(getValidity().invalidated());
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Retrieves whether the session changed since it was last saved or not.
+	 * 
+	 * @return The result.
+	 */
+	public boolean isDirty() {
+		lock.lock();
+		
+		try {
+			return dirty || (isLoaded() && getSessionCookies().getVersion() != savedCookiesVersion);
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Marks the session as saved.
+	 * 
+	 * @return The session data.
+	 */
+	public SessionData markClean() {
+		lock.lock();
+		
+		try {
+			this.dirty = false;
+			
+			if (isLoaded()) {
+				this.savedCookiesVersion = getSessionCookies().getVersion();
+			}
+			return this;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Marks the session as changed, e.g. when saving it failed.
+	 * 
+	 * @return The session data.
+	 */
+	public SessionData markDirty() {
+		lock.lock();
+		
+		try {
+			this.dirty = true;
+			return this;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Leases the session for exclusive use, waiting until other holders released it.
+	 * Leasing is optional, tasks that don't lease share the session concurrently.
+	 * 
+	 * @return The lease, to be closed once done.
+	 * 
+	 * @throws InterruptedException When interrupted while waiting.
+	 */
+	public SessionLease lease() throws InterruptedException {
+		Semaphore permit = getLeasePermit();
+		permit.acquire();
+		return new SessionLease(permit);
+	}
+	
+	/**
+	 * Leases the session for exclusive use if it becomes available within the given time.
+	 * 
+	 * @param timeout The maximum time to wait.
+	 * 
+	 * @param unit The time unit.
+	 * 
+	 * @return The lease to be closed once done, null when not obtained in time.
+	 * 
+	 * @throws InterruptedException When interrupted while waiting.
+	 */
+	public SessionLease tryLease(long timeout, TimeUnit unit) throws InterruptedException {
+		Semaphore permit = getLeasePermit();
+		return permit.tryAcquire(timeout, unit) ? new SessionLease(permit) : null;
+	}
+	
+	/**
+	 * Retrieves the lease permit, creating it on first use.
+	 * 
+	 * @return The lease permit.
+	 */
+	private Semaphore getLeasePermit() {
+		lock.lock();
+		
+		try {
+			if (Objects.isNull(leasePermit)) {
+				leasePermit = new Semaphore(1, true);
+			}
+			return leasePermit;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Deserializes the cookies and validity if they're still in their stored form.
+	 * The browser is copied from it's profile on first access, a session stored without browser draws a desktop profile.
+	 */
+	private void load() {
+		lock.lock();
+		
+		try {
+			if (Objects.isNull(loader)) {
+				return;
+			}
+			SessionData full = loader.get();
+			
+			SessionCookies loaded = new SessionCookies(Objects.isNull(full) ? null : full.cookies);
+			
+			this.cookies = loaded;
+			this.validity = Objects.isNull(full) ? null : full.validity;
+			this.savedCookiesVersion = loaded.getVersion();
+			this.loader = null;
+			this.stored = null;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Retrieves the shared profile the browser is drawn from.
+	 * 
+	 * @return The browser profile, null when the browser was set explicitly.
+	 */
+	public BrowserProfile getBrowserProfile() {
+		lock.lock();
+		
+		try {
+			return browserProfile;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Retrieves whether the browser, cookies and validity are deserialized or not.
+	 * 
+	 * @return The result.
+	 */
+	public boolean isLoaded() {
+		lock.lock();
+		
+		try {
+			return Objects.isNull(loader);
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Materializes the lazily loaded browser, cookies and validity.
+	 * 
+	 * @return The session data.
+	 */
+	public SessionData materialize() {
+		getBrowser();
+		return this;
+	}
+	
+	/**
+	 * Writes the loaded session while holding it's lock, so fields changed by tasks sharing the session are written consistently.
+	 * The cookies are written from a snapshot.
+	 * 
+	 * @param writer The json writer.
+	 * 
+	 * @param key The key to write the session under.
+	 */
+	public void write(JsonWriter writer, String key) {
+		materialize();
+		lock.lock();
+		
+		try {
+			writer.write(key, this);
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Retrieves the serialized form of a session that was not loaded yet, without deserializing it.
+	 * 
+	 * @return The serialized session, null once loaded.
+	 */
+	public JsonObject getStoredJson() {
+		lock.lock();
+		
+		try {
+			if (isLoaded()) {
+				return null;
+			}
+			JsonObject json = new JsonObject();
+			
+			for (Map.Entry<String, JsonElement> member : stored.entrySet()) {
+				json.add(member.getKey(), member.getValue());
+			}
+			setString(json, "proxyUUID", proxyUUID);
+			setString(json, "lastReferer", lastReferer);
+			return json;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Creates a session from it's serialized form.
+	 * The browser, cookies and validity are only deserialized once they're accessed.
+	 * 
+	 * @param json The serialized session.
+	 * 
+	 * @param loader Deserializes the full session, through the same gson instance the session was read with.
+	 * 
+	 * @return The session data.
+	 */
+	public static SessionData fromJson(JsonObject json, Supplier<SessionData> loader) {
+		return new SessionData(json, loader);
+	}
+	
+	/**
+	 * Retrieves a json member, treating json null as absent.
+	 * 
+	 * @param json The json object.
+	 * 
+	 * @param key The member key.
+	 * 
+	 * @return The member.
+	 */
+	private static JsonElement getMember(JsonObject json, String key) {
+		JsonElement member = json.get(key);
+		return Objects.isNull(member) || member.isJsonNull() ? null : member;
+	}
+	
+	/**
+	 * Modifies a json string member, removing it when null like gson does.
+	 * 
+	 * @param json The json object.
+	 * 
+	 * @param key The member key.
+	 * 
+	 * @param value The string.
+	 */
+	private static void setString(JsonObject json, String key, String value) {
+		if (Objects.isNull(value)) {
+			json.remove(key);
+		} else {
+			json.addProperty(key, value);
+		}
+	}
+	
+	/**
+	 * Retrieves a json string member.
+	 * 
+	 * @param json The json object.
+	 * 
+	 * @param key The member key.
+	 * 
+	 * @return The string.
+	 */
+	private static String getString(JsonObject json, String key) {
+		JsonElement member = getMember(json, key);
+		return Objects.isNull(member) ? null : member.getAsString();
 	}
 
 }
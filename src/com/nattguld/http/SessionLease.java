@@ -0,0 +1,54 @@
+package com.nattguld.http;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public final class SessionLease implements AutoCloseable {
+	
+	/**
+	 * The permit of the leased session.
+	 */
+	private final Semaphore permit;
+	
+	/**
+	 * Whether the lease was released or not.
+	 */
+	private final AtomicBoolean released;
+	
+	
+	/**
+	 * Creates a new session lease.
+	 * 
+	 * @param permit The acquired permit of the leased session.
+	 */
+	SessionLease(Semaphore permit) {
+		this.permit = permit;
+		this.released = new AtomicBoolean();
+	}
+	
+	/**
+	 * Releases the lease, can be called from any thread and more than once.
+	 */
+	@Override
+	public void close() {
+		if (released.compareAndSet(false, true)) {
+			permit.release();
+		}
+	}
+	
+	/**
+	 * Retrieves whether the lease was released or not.
+	 * 
+	 * @return The result.
+	 */
+	public boolean isReleased() {
+		return released.get();
+	}
+
+}
@@ -0,0 +1,151 @@
+package com.nattguld.http;
+
+import java.util.Objects;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public final class SessionValidity {
+	
+	/**
+	 * The validity of a session that was never verified.
+	 */
+	public static final SessionValidity NONE = new SessionValidity(0L, 0L, null);
+	
+	/**
+	 * The time the earliest session cookie expires in milliseconds since the epoch, 0 if unknown.
+	 */
+	private final long earliestExpiry;
+	
+	/**
+	 * The time the session was last verified to be logged in, in milliseconds since the epoch, 0 if not verified.
+	 */
+	private final long lastVerified;
+	
+	/**
+	 * The outcome of the last task on the session.
+	 */
+	private final Outcome lastOutcome;
+	
+	
+	/**
+	 * Creates a new session validity.
+	 * 
+	 * @param earliestExpiry The time the earliest session cookie expires, 0 if unknown.
+	 * 
+	 * @param lastVerified The time the session was last verified, 0 if not verified.
+	 * 
+	 * @param lastOutcome The outcome of the last task on the session.
+	 */
+	private SessionValidity(long earliestExpiry, long lastVerified, Outcome lastOutcome) {
+		this.earliestExpiry = earliestExpiry;
+		this.lastVerified = lastVerified;
+		this.lastOutcome = lastOutcome;
+	}
+	
+	/**
+	 * Retrieves whether the session can be assumed to still be logged in or not.
+	 * It has to be verified within the max. age, the last task has to have succeeded and no session cookie may have expired.
+	 * 
+	 * @param maxAge The max. time in milliseconds since the last verification.
+	 * 
+	 * @return The result.
+	 */
+	public boolean isValid(long maxAge) {
+		if (lastVerified <= 0L || lastOutcome == Outcome.FAILED) {
+			return false;
+		}
+		long now = System.currentTimeMillis();
+		return now - lastVerified <= maxAge && (earliestExpiry <= 0L || now < earliestExpiry);
+	}
+	
+	/**
+	 * Creates the validity after verifying the session is logged in.
+	 * 
+	 * @param earliestExpiry The time the earliest session cookie expires, 0 if unknown.
+	 * 
+	 * @return The new validity.
+	 */
+	public SessionValidity verified(long earliestExpiry) {
+		return new SessionValidity(earliestExpiry, System.currentTimeMillis(), Outcome.SUCCESS);
+	}
+	
+	/**
+	 * Creates the validity after a task finished on the session.
+	 * 
+	 * @param outcome The outcome of the task.
+	 * 
+	 * @return The new validity.
+	 */
+	public SessionValidity finished(Outcome outcome) {
+		return outcome == lastOutcome ? this : new SessionValidity(earliestExpiry, lastVerified, outcome);
+	}
+	
+	/**
+	 * Creates the validity after the session was invalidated, keeping the last outcome.
+	 * 
+	 * @return The new validity.
+	 */
+	public SessionValidity invalidated() {
+		return lastVerified == 0L && earliestExpiry == 0L ? this : new SessionValidity(0L, 0L, lastOutcome);
+	}
+	
+	/**
+	 * Retrieves the time the earliest session cookie expires.
+	 * 
+	 * @return The time in milliseconds since the epoch, 0 if unknown.
+	 */
+	public long getEarliestExpiry() {
+		return earliestExpiry;
+	}
+	
+	/**
+	 * Retrieves the time the session was last verified to be logged in.
+	 * 
+	 * @return The time in milliseconds since the epoch, 0 if not verified.
+	 */
+	public long getLastVerified() {
+		return lastVerified;
+	}
+	
+	/**
+	 * Retrieves the outcome of the last task on the session.
+	 * 
+	 * @return The outcome, null if no task finished yet.
+	 */
+	public Outcome getLastOutcome() {
+		return lastOutcome;
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof SessionValidity)) {
+			return false;
+		}
+		SessionValidity other = (SessionValidity)o;
+		return earliestExpiry == other.earliestExpiry && lastVerified == other.lastVerified && lastOutcome == other.lastOutcome;
+	}
+	
+	@Override
+	public int hashCode() {
+		return Objects.hash(earliestExpiry, lastVerified, lastOutcome);
+	}
+	
+	
+	/**
+	 * The outcome of a task on the session.
+	 */
+	public enum Outcome {
+		
+		SUCCESS,
+		FAILED;
+	
+	}
+
+}
@@ -1,7 +1,11 @@
 package com.nattguld.http;
 
+import java.util.Objects;
 import java.util.UUID;
+import java.util.function.Consumer;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
 import com.nattguld.data.json.JsonReader;
 import com.nattguld.data.json.JsonResource;
 import com.nattguld.data.json.JsonWriter;
@@ -44,17 +48,73 @@ public abstract class StorableSession extends JsonResource implements ISession {
 		super(reader);
 		
 		this.uuid = getReader().getAsString("uuid");
-		this.sessionData = (SessionData)getReader().getAsObject("session_data", SessionData.class, new SessionData());
+		JsonReader resourceReader = getReader();
+		JsonObject json = (JsonObject)resourceReader.getAsObject("session_data", JsonObject.class, null);
+		this.sessionData = Objects.isNull(json) ? new SessionData()
+				: SessionData.fromJson(json, () -> (SessionData)resourceReader.getAsObject("session_data", SessionData.class, null));
 		
-		if (!getReader().has("session_data")) {
+		if (Objects.isNull(json)) {
 			sessionData.readMigrate(getReader());
+		} else {
+			sessionData.markClean();
 		}
 	}
 	
 	@Override
 	protected void write(JsonWriter writer) {
 		writer.write("uuid", uuid);
-		writer.write("session_data", sessionData);
+		JsonObject stored = sessionData.getStoredJson();
+		
+		if (Objects.nonNull(stored)) {
+			writer.write("session_data", stored);
+			return;
+		}
+		sessionData.write(writer, "session_data");
+	}
+	
+	/**
+	 * Writes the session into a json object, holding the same contents as it's json file.
+	 * 
+	 * @param gson The gson instance.
+	 * 
+	 * @return The json object.
+	 */
+	public JsonObject toJsonObject(Gson gson) {
+		JsonWriter writer = new JsonWriter(gson);
+		write(writer);
+		return writer.getJsonObject();
+	}
+	
+	/**
+	 * Saves the session to it's json file if it changed since it was last saved.
+	 * 
+	 * @return Whether the session was saved or not.
+	 */
+	public boolean saveIfDirty() {
+		return saveIfDirty(StorableSession::save);
+	}
+	
+	/**
+	 * Saves the session if it changed since it was last saved.
+	 * The session is marked clean before writing, so changes made during the write keep it dirty.
+	 * 
+	 * @param writer Writes the session.
+	 * 
+	 * @return Whether the session was saved or not.
+	 */
+	public boolean saveIfDirty(Consumer<? super StorableSession> writer) {
+		if (!sessionData.isDirty()) {
+			return false;
+		}
+		sessionData.markClean();
+		
+		try {
+			writer.accept(this);
+		} catch (RuntimeException ex) {
+			sessionData.markDirty();
+			throw ex;
+		}
+		return true;
 	}
 	
 	@Override
@@ -66,7 +126,7 @@ public abstract class StorableSession extends JsonResource implements ISession {
 	public SessionData getSessionData() {
 		return sessionData;
 	}
-
+	
 	@Override
 	protected String getSaveFileName() {
 		return getUUID();
@@ -0,0 +1,92 @@
+package com.nattguld.http;
+
+import java.io.IOException;
+import java.util.Objects;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public class StringPool {
+	
+	/**
+	 * The amount of pool slots, a power of two.
+	 */
+	private static final int SIZE = 1 << 16;
+	
+	/**
+	 * The maximum length of a pooled string, longer ones are rarely shared.
+	 */
+	private static final int MAX_LENGTH = 256;
+	
+	/**
+	 * The pooled strings, a slot is overwritten when another string hashes to it.
+	 * Races only cost a missed deduplication since strings are immutable.
+	 */
+	private static final String[] pool = new String[SIZE];
+	
+	/**
+	 * The gson type adapter pooling the strings it reads.
+	 */
+	private static final TypeAdapter<String> typeAdapter = new TypeAdapter<String>() {
+		@Override
+		public void write(JsonWriter out, String value) throws IOException {
+			out.value(value);
+		}
+		
+		@Override
+		public String read(JsonReader in) throws IOException {
+			JsonToken token = in.peek();
+			
+			if (token == JsonToken.NULL) {
+				in.nextNull();
+				return null;
+			}
+			if (token == JsonToken.BOOLEAN) {
+				return Boolean.toString(in.nextBoolean());
+			}
+			return canonicalize(in.nextString());
+		}
+	};
+	
+	
+	/**
+	 * Retrieves the pooled instance of an equal string, pooling the given one if there is none.
+	 * Unlike {@link String#intern()} the pool has a fixed size and never grows.
+	 * 
+	 * @param s The string.
+	 * 
+	 * @return The pooled string.
+	 */
+	public static String canonicalize(String s) {
+		if (Objects.isNull(s) || s.length() > MAX_LENGTH) {
+			return s;
+		}
+		int h = s.hashCode();
+		int slot = (h ^ (h >>> 16)) & (SIZE - 1);
+		String pooled = pool[slot];
+		
+		if (s.equals(pooled)) {
+			return pooled;
+		}
+		pool[slot] = s;
+		return s;
+	}
+	
+	/**
+	 * Retrieves a gson type adapter that pools the strings it reads.
+	 * 
+	 * @return The type adapter.
+	 */
+	public static TypeAdapter<String> getTypeAdapter() {
+		return typeAdapter;
+	}
+
+}
@@ -0,0 +1,200 @@
+package com.nattguld.http.cfg;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+import com.nattguld.http.proxies.cfg.ProxyConfig;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public final class PolicySnapshot {
+	
+	/**
+	 * The published snapshot.
+	 */
+	private static final AtomicReference<PolicySnapshot> current = new AtomicReference<>();
+	
+	/**
+	 * The interval in nanoseconds after which the snapshot is rebuilt.
+	 * Picks up config changes that were made without publishing them, e.g. to the proxy config.
+	 */
+	private static final long REFRESH_INTERVAL = TimeUnit.SECONDS.toNanos(1L);
+	
+	/**
+	 * The lock serializing config changes and snapshot builds.
+	 */
+	private static final ReentrantLock lock = new ReentrantLock();
+	
+	/**
+	 * The proxy policy.
+	 */
+	private final ProxyPolicy proxyPolicy;
+	
+	/**
+	 * Whether to allow flagged proxies or not.
+	 */
+	private final boolean allowFlaggedProxies;
+	
+	/**
+	 * Whether traffic is routed through fiddler or not.
+	 */
+	private final boolean fiddler;
+	
+	/**
+	 * Whether cellular mode is enabled or not.
+	 */
+	private final boolean cellularMode;
+	
+	/**
+	 * The time the snapshot was built.
+	 */
+	private final long builtAt;
+	
+	
+	/**
+	 * Creates a new policy snapshot.
+	 * 
+	 * @param sessionConfig The session config.
+	 * 
+	 * @param proxyConfig The proxy config.
+	 */
+	private PolicySnapshot(SessionConfig sessionConfig, ProxyConfig proxyConfig) {
+		this.proxyPolicy = sessionConfig.getProxyPolicy();
+		this.allowFlaggedProxies = sessionConfig.isAllowFlaggedProxies();
+		this.fiddler = proxyConfig.isFiddler();
+		this.cellularMode = proxyConfig.isCellularMode();
+		this.builtAt = System.nanoTime();
+	}
+	
+	/**
+	 * Retrieves the proxy policy.
+	 * 
+	 * @return The proxy policy.
+	 */
+	public ProxyPolicy getProxyPolicy() {
+		return proxyPolicy;
+	}
+	
+	/**
+	 * Retrieves whether to allow flagged proxies or not.
+	 * 
+	 * @return The result.
+	 */
+	public boolean isAllowFlaggedProxies() {
+		return allowFlaggedProxies;
+	}
+	
+	/**
+	 * Retrieves whether traffic is routed through fiddler or not.
+	 * 
+	 * @return The result.
+	 */
+	public boolean isFiddler() {
+		return fiddler;
+	}
+	
+	/**
+	 * Retrieves whether cellular mode is enabled or not.
+	 * 
+	 * @return The result.
+	 */
+	public boolean isCellularMode() {
+		return cellularMode;
+	}
+	
+	/**
+	 * Compares the policy, snapshots rebuilt without a config change are equal.
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof PolicySnapshot)) {
+			return false;
+		}
+		PolicySnapshot other = (PolicySnapshot)o;
+		return proxyPolicy == other.proxyPolicy && allowFlaggedProxies == other.allowFlaggedProxies 
+				&& fiddler == other.fiddler && cellularMode == other.cellularMode;
+	}
+	
+	@Override
+	public int hashCode() {
+		return Objects.hash(proxyPolicy, allowFlaggedProxies, fiddler, cellularMode);
+	}
+	
+	/**
+	 * Retrieves the published snapshot, building it on first use and rebuilding it once it's older than the refresh interval.
+	 * 
+	 * @return The snapshot.
+	 */
+	public static PolicySnapshot getSnapshot() {
+		PolicySnapshot snapshot = current.get();
+		
+		if (Objects.isNull(snapshot)) {
+			return reload();
+		}
+		if (System.nanoTime() - snapshot.builtAt < REFRESH_INTERVAL || !lock.tryLock()) {
+			return snapshot;
+		}
+		try {
+			return publish();
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Builds a snapshot of the current session and proxy config and publishes it.
+	 * Has to be called after the configs were modified outside of {@link #update} for tasks to see it before the next refresh.
+	 * 
+	 * @return The new snapshot.
+	 */
+	public static PolicySnapshot reload() {
+		lock.lock();
+		
+		try {
+			return publish();
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Applies a batch of changes to the session and proxy config and publishes a single snapshot afterwards.
+	 * Snapshots are never built halfway through the batch.
+	 * 
+	 * @param changes Modifies the session and proxy config.
+	 * 
+	 * @return The new snapshot.
+	 */
+	public static PolicySnapshot update(BiConsumer<SessionConfig, ProxyConfig> changes) {
+		lock.lock();
+		
+		try {
+			changes.accept(SessionConfig.getConfig(), ProxyConfig.getConfig());
+			return publish();
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Builds and publishes a snapshot, the lock has to be held.
+	 * 
+	 * @return The new snapshot.
+	 */
+	private static PolicySnapshot publish() {
+		PolicySnapshot snapshot = new PolicySnapshot(SessionConfig.getConfig(), ProxyConfig.getConfig());
+		current.set(snapshot);
+		return snapshot;
+	}
+
+}
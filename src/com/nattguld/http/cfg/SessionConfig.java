@@ -43,6 +43,7 @@ public class SessionConfig extends Config {
 	
 	/**
 	 * Modifies whether to allow flagged proxies or not.
+	 * Use {@link PolicySnapshot#update} to publish the change to tasks right away.
 	 * 
 	 * @param allowFlaggedProxies The new state.
 	 * 
@@ -64,6 +65,7 @@ public class SessionConfig extends Config {
 	
 	/**
 	 * Modifies the proxy policy.
+	 * Use {@link PolicySnapshot#update} to publish the change to tasks right away.
 	 * 
 	 * @param proxyPolicy The new proxy policy.
 	 * 
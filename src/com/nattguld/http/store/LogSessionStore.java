@@ -0,0 +1,1121 @@
+package com.nattguld.http.store;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.nattguld.data.json.JsonReader;
+import com.nattguld.http.StorableSession;
+import com.nattguld.http.StringPool;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public class LogSessionStore<S extends StorableSession> implements Closeable {
+	
+	/**
+	 * The segment file name prefix.
+	 */
+	private static final String SEGMENT_PREFIX = "segment-";
+	
+	/**
+	 * The segment file name suffix.
+	 */
+	private static final String SEGMENT_SUFFIX = ".log";
+	
+	/**
+	 * The suffix of a segment that is being compacted.
+	 */
+	private static final String COMPACT_SUFFIX = ".compact";
+	
+	/**
+	 * The record type of a stored session.
+	 */
+	private static final byte PUT = 1;
+	
+	/**
+	 * The record type of a deleted session.
+	 */
+	private static final byte DELETE = 2;
+	
+	/**
+	 * The record header size, holding the payload length and checksum.
+	 */
+	private static final int HEADER_SIZE = 8;
+	
+	/**
+	 * The maximum payload size, anything above is treated as a torn record.
+	 */
+	private static final int MAX_PAYLOAD_SIZE = 64 * 1024 * 1024;
+	
+	/**
+	 * The gson instance, pooling the strings it reads since cookie names, domains and common values repeat across sessions.
+	 */
+	private final Gson gson = new GsonBuilder().registerTypeAdapter(String.class, StringPool.getTypeAdapter()).create();
+	
+	/**
+	 * The store directory.
+	 */
+	private final Path dir;
+	
+	/**
+	 * Creates sessions from their json.
+	 */
+	private final Function<JsonReader, S> factory;
+	
+	/**
+	 * The size in bytes after which a new segment is started.
+	 */
+	private final long maxSegmentSize;
+	
+	/**
+	 * The location of the latest record per session UUID.
+	 */
+	private final Map<String, Location> index = new ConcurrentHashMap<>();
+	
+	/**
+	 * The segments by their id.
+	 */
+	private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+	
+	/**
+	 * Guards appending to the active segment.
+	 */
+	private final ReentrantLock appendLock = new ReentrantLock();
+	
+	/**
+	 * Guards compaction runs.
+	 */
+	private final ReentrantLock compactionLock = new ReentrantLock();
+	
+	/**
+	 * Guards segment files against being swapped out while they are read.
+	 */
+	private final ReentrantReadWriteLock segmentLock = new ReentrantReadWriteLock();
+	
+	/**
+	 * Guards starting and stopping the background compactor.
+	 */
+	private final ReentrantLock compactorLock = new ReentrantLock();
+	
+	/**
+	 * The segment records are appended to.
+	 */
+	private volatile Segment active;
+	
+	/**
+	 * The background compactor.
+	 */
+	private ScheduledExecutorService compactor;
+	
+	/**
+	 * Notified of skipped records, failed imports and compactions.
+	 */
+	private final SessionStoreListener listener;
+	
+	
+	/**
+	 * Opens a session store, rebuilding the index from the segments in the directory.
+	 * Events are written to the standard error stream.
+	 * 
+	 * @param dir The store directory.
+	 * 
+	 * @param factory Creates sessions from their json, e.g. the reader constructor of the session class.
+	 * 
+	 * @param maxSegmentSize The size in bytes after which a new segment is started.
+	 * 
+	 * @throws IOException When the segments could not be read.
+	 */
+	public LogSessionStore(Path dir, Function<JsonReader, S> factory, long maxSegmentSize) throws IOException {
+		this(dir, factory, maxSegmentSize, SessionStoreListener.STANDARD_ERROR);
+	}
+	
+	/**
+	 * Opens a session store, rebuilding the index from the segments in the directory.
+	 * 
+	 * @param dir The store directory.
+	 * 
+	 * @param factory Creates sessions from their json, e.g. the reader constructor of the session class.
+	 * 
+	 * @param maxSegmentSize The size in bytes after which a new segment is started.
+	 * 
+	 * @param listener Notified of skipped records, failed imports and compactions, including those while rebuilding the index.
+	 * 
+	 * @throws IOException When the segments could not be read.
+	 */
+	public LogSessionStore(Path dir, Function<JsonReader, S> factory, long maxSegmentSize, SessionStoreListener listener) throws IOException {
+		this.dir = dir;
+		this.factory = factory;
+		this.maxSegmentSize = maxSegmentSize;
+		this.listener = Objects.requireNonNull(listener);
+		
+		Files.createDirectories(dir);
+		
+		List<Integer> ids = new ArrayList<>();
+		
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				
+				if (name.endsWith(COMPACT_SUFFIX)) {
+					Files.delete(file);
+					continue;
+				}
+				if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+					ids.add(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+				}
+			}
+		}
+		Collections.sort(ids);
+		
+		for (int id : ids) {
+			Segment segment = new Segment(id, openChannel(getSegmentPath(id)));
+			segments.put(id, segment);
+			scan(segment);
+		}
+		this.active = ids.isEmpty() ? createSegment(1) : segments.lastEntry().getValue();
+	}
+	
+	/**
+	 * Writes a session.
+	 * 
+	 * @param session The session.
+	 * 
+	 * @throws IOException When the record could not be appended.
+	 */
+	public void write(StorableSession session) throws IOException {
+		append(PUT, session.getUUID(), gson.toJson(session.toJsonObject(gson)));
+	}
+	
+	/**
+	 * Writes a batch of sessions, appending all records under a single lock acquisition.
+	 * Usable as batch writer of a {@link WriteBehindSessionStore}.
+	 * 
+	 * @param batch The sessions.
+	 * 
+	 * @throws IOException When a record could not be appended.
+	 */
+	public void writeAll(List<StorableSession> batch) throws IOException {
+		List<ByteBuffer> buffers = new ArrayList<>(batch.size());
+		
+		for (StorableSession session : batch) {
+			buffers.add(new Record(PUT, session.getUUID(), gson.toJson(session.toJsonObject(gson)), null).toBuffer());
+		}
+		appendLock.lock();
+		
+		try {
+			for (int i = 0; i < batch.size(); i++) {
+				appendLocked(PUT, batch.get(i).getUUID(), buffers.get(i));
+			}
+		} finally {
+			appendLock.unlock();
+		}
+	}
+	
+	/**
+	 * Writes a session if it changed since it was last saved.
+	 * 
+	 * @param session The session.
+	 * 
+	 * @return Whether the session was written or not.
+	 */
+	public boolean saveIfDirty(StorableSession session) {
+		return session.saveIfDirty(this::writeUnchecked);
+	}
+	
+	/**
+	 * Writes a session, rethrowing a failure unchecked.
+	 * 
+	 * @param session The session.
+	 */
+	private void writeUnchecked(StorableSession session) {
+		try {
+			write(session);
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+	
+	/**
+	 * Deletes a session.
+	 * 
+	 * @param uuid The session UUID.
+	 * 
+	 * @throws IOException When the record could not be appended.
+	 */
+	public void delete(String uuid) throws IOException {
+		if (index.containsKey(uuid)) {
+			append(DELETE, uuid, "");
+		}
+	}
+	
+	/**
+	 * Loads a session.
+	 * 
+	 * @param uuid The session UUID.
+	 * 
+	 * @return The session, null when not stored.
+	 * 
+	 * @throws IOException When the record could not be read.
+	 */
+	public S load(String uuid) throws IOException {
+		String json;
+		
+		segmentLock.readLock().lock();
+		
+		try {
+			Location location = index.get(uuid);
+			
+			if (Objects.isNull(location)) {
+				return null;
+			}
+			json = read(location).json;
+		} finally {
+			segmentLock.readLock().unlock();
+		}
+		return factory.apply(new JsonReader(gson, parse(json)));
+	}
+	
+	/**
+	 * Loads all sessions.
+	 * 
+	 * @return The sessions.
+	 * 
+	 * @throws IOException When a record could not be read.
+	 */
+	public List<S> loadAll() throws IOException {
+		List<S> sessions = new ArrayList<>(index.size());
+		
+		for (String uuid : index.keySet()) {
+			S session = load(uuid);
+			
+			if (Objects.nonNull(session)) {
+				sessions.add(session);
+			}
+		}
+		return sessions;
+	}
+	
+	/**
+	 * Retrieves the UUIDs of the stored sessions.
+	 * 
+	 * @return The UUIDs.
+	 */
+	public Set<String> getUUIDs() {
+		return Collections.unmodifiableSet(index.keySet());
+	}
+	
+	/**
+	 * Imports the sessions stored as one json file per session, skipping the ones already in the store.
+	 * 
+	 * @param sourceDir The directory holding the json files.
+	 * 
+	 * @return The amount of imported sessions.
+	 * 
+	 * @throws IOException When the directory could not be read or a record not be appended.
+	 */
+	public int importDirectory(Path sourceDir) throws IOException {
+		int imported = 0;
+		
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(sourceDir)) {
+			for (Path file : files) {
+				if (!Files.isRegularFile(file)) {
+					continue;
+				}
+				String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+				JsonObject object;
+				
+				try {
+					object = parse(json);
+				} catch (JsonParseException | IllegalStateException ex) {
+					publishEvent(SessionStoreEventType.IMPORT_SKIPPED, file.getFileName() + " (malformed)");
+					continue;
+				}
+				JsonElement uuid = object.get("uuid");
+				
+				if (Objects.isNull(uuid)) {
+					publishEvent(SessionStoreEventType.IMPORT_SKIPPED, file.getFileName() + " (no uuid)");
+					continue;
+				}
+				if (index.containsKey(uuid.getAsString())) {
+					continue;
+				}
+				append(PUT, uuid.getAsString(), json);
+				imported++;
+			}
+		}
+		sync();
+		return imported;
+	}
+	
+	/**
+	 * Forces the appended records to disk.
+	 * 
+	 * @throws IOException When the segment could not be synced.
+	 */
+	public void sync() throws IOException {
+		appendLock.lock();
+		
+		try {
+			active.channel.force(false);
+		} finally {
+			appendLock.unlock();
+		}
+	}
+	
+	/**
+	 * Starts compacting the store in the background.
+	 * 
+	 * @param period The time between compaction checks.
+	 * 
+	 * @param unit The time unit.
+	 * 
+	 * @param minGarbageRatio The share of dead bytes in the sealed segments that triggers a compaction.
+	 */
+	public void startCompaction(long period, TimeUnit unit, double minGarbageRatio) {
+		compactorLock.lock();
+		
+		try {
+			if (Objects.nonNull(compactor)) {
+				return;
+			}
+			compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "session-store-compactor");
+				t.setDaemon(true);
+				return t;
+			});
+			compactor.scheduleWithFixedDelay(() -> {
+				try {
+					compact(minGarbageRatio);
+				} catch (IOException | RuntimeException ex) {
+					publishEvent(SessionStoreEventType.COMPACTION_FAILED, ex.getMessage());
+				}
+			}, period, period, unit);
+		} finally {
+			compactorLock.unlock();
+		}
+	}
+	
+	/**
+	 * Rewrites the live records of all sealed segments into a single segment when enough of them is dead.
+	 * The compacted segment takes the id of the newest sealed segment so it still precedes the active one.
+	 * 
+	 * @param minGarbageRatio The share of dead bytes in the sealed segments that triggers a compaction.
+	 * 
+	 * @return Whether a compaction ran or not.
+	 * 
+	 * @throws IOException When a segment could not be read or written.
+	 */
+	public boolean compact(double minGarbageRatio) throws IOException {
+		compactionLock.lock();
+		
+		try {
+			List<Segment> sealed = new ArrayList<>(segments.headMap(active.id).values());
+			
+			if (sealed.isEmpty()) {
+				return false;
+			}
+			long total = 0L;
+			long live = 0L;
+			
+			for (Segment segment : sealed) {
+				total += segment.size.get();
+				live += segment.live.get();
+			}
+			if (total == 0L || (double)(total - live) / total < minGarbageRatio) {
+				return false;
+			}
+			int targetId = sealed.get(sealed.size() - 1).id;
+			int oldestId = sealed.get(0).id;
+			Path tmp = dir.resolve(SEGMENT_PREFIX + targetId + SEGMENT_SUFFIX + COMPACT_SUFFIX);
+			Map<String, Location> original = new HashMap<>();
+			Map<String, Location> moved = new HashMap<>();
+			Set<String> tombstones = new HashSet<>();
+			long offset = 0L;
+			
+			try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+				for (Segment segment : sealed) {
+					for (Record record : readAll(segment)) {
+						boolean keep;
+						
+						if (record.type == PUT) {
+							keep = record.location.equals(index.get(record.uuid));
+						} else {
+							keep = segment.id != oldestId && !index.containsKey(record.uuid) && tombstones.add(record.uuid);
+						}
+						if (!keep) {
+							continue;
+						}
+						ByteBuffer buffer = record.toBuffer();
+						Location location = new Location(targetId, offset, buffer.remaining());
+						writeFully(out, buffer, offset);
+						offset += location.length;
+						
+						if (record.type == PUT) {
+							original.put(record.uuid, record.location);
+							moved.put(record.uuid, location);
+						}
+					}
+				}
+				out.force(true);
+			}
+			appendLock.lock();
+			segmentLock.writeLock().lock();
+			
+			try {
+				for (Segment segment : sealed) {
+					segment.channel.close();
+				}
+				Files.move(tmp, getSegmentPath(targetId), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+				
+				for (Segment segment : sealed) {
+					segments.remove(segment.id);
+					
+					if (segment.id != targetId) {
+						Files.delete(getSegmentPath(segment.id));
+					}
+				}
+				Segment compacted = new Segment(targetId, openChannel(getSegmentPath(targetId)));
+				compacted.size.set(offset);
+				segments.put(targetId, compacted);
+				
+				for (Map.Entry<String, Location> entry : moved.entrySet()) {
+					if (index.replace(entry.getKey(), original.get(entry.getKey()), entry.getValue())) {
+						compacted.live.addAndGet(entry.getValue().length);
+					}
+				}
+			} finally {
+				segmentLock.writeLock().unlock();
+				appendLock.unlock();
+			}
+			return true;
+		} finally {
+			compactionLock.unlock();
+		}
+	}
+	
+	/**
+	 * Appends a record to the active segment and points the index at it.
+	 * 
+	 * @param type The record type.
+	 * 
+	 * @param uuid The session UUID.
+	 * 
+	 * @param json The session json.
+	 * 
+	 * @throws IOException When the record could not be appended.
+	 */
+	private void append(byte type, String uuid, String json) throws IOException {
+		ByteBuffer buffer = new Record(type, uuid, json, null).toBuffer();
+		
+		appendLock.lock();
+		
+		try {
+			appendLocked(type, uuid, buffer);
+		} finally {
+			appendLock.unlock();
+		}
+	}
+	
+	/**
+	 * Appends an encoded record to the active segment, starting a new segment when it's full.
+	 * The append lock has to be held.
+	 * 
+	 * @param type The record type.
+	 * 
+	 * @param uuid The session UUID.
+	 * 
+	 * @param buffer The encoded record.
+	 * 
+	 * @throws IOException When the record could not be appended.
+	 */
+	private void appendLocked(byte type, String uuid, ByteBuffer buffer) throws IOException {
+		Segment segment = active;
+		
+		if (segment.size.get() > 0L && segment.size.get() + buffer.remaining() > maxSegmentSize) {
+			segment.channel.force(false);
+			segment = active = createSegment(segment.id + 1);
+		}
+		long offset = segment.size.get();
+		Location location = new Location(segment.id, offset, buffer.remaining());
+		
+		writeFully(segment.channel, buffer, offset);
+		segment.size.addAndGet(location.length);
+		apply(type, uuid, location);
+	}
+	
+	/**
+	 * Applies a record to the index and the live byte counts.
+	 * 
+	 * @param type The record type.
+	 * 
+	 * @param uuid The session UUID.
+	 * 
+	 * @param location The record location.
+	 */
+	private void apply(byte type, String uuid, Location location) {
+		Location old;
+		
+		if (type == PUT) {
+			old = index.put(uuid, location);
+			segments.get(location.segmentId).live.addAndGet(location.length);
+		} else {
+			old = index.remove(uuid);
+		}
+		if (Objects.nonNull(old)) {
+			Segment segment = segments.get(old.segmentId);
+			
+			if (Objects.nonNull(segment)) {
+				segment.live.addAndGet(-old.length);
+			}
+		}
+	}
+	
+	/**
+	 * Rebuilds the index from a segment, truncating a torn record at it's tail.
+	 * Corrupt records in the middle of the segment are skipped, the records after them are kept.
+	 * 
+	 * @param segment The segment.
+	 * 
+	 * @throws IOException When the segment could not be read.
+	 */
+	private void scan(Segment segment) throws IOException {
+		List<Record> records = readAll(segment);
+		long valid = 0L;
+		
+		for (Record record : records) {
+			apply(record.type, record.uuid, record.location);
+			valid = record.location.offset + record.location.length;
+		}
+		if (segment.channel.size() > valid) {
+			publishEvent(SessionStoreEventType.STORE_CORRUPT, "truncated torn tail of segment " + segment.id + " at " + valid);
+			segment.channel.truncate(valid);
+		}
+		segment.size.set(valid);
+	}
+	
+	/**
+	 * Reads all intact records of a segment in order.
+	 * When a record is corrupt the reader moves ahead byte by byte until the next record that passes it's checksum, so one bad record doesn't cost the ones after it.
+	 * 
+	 * @param segment The segment.
+	 * 
+	 * @return The records.
+	 * 
+	 * @throws IOException When the segment could not be read.
+	 */
+	private List<Record> readAll(Segment segment) throws IOException {
+		List<Record> records = new ArrayList<>();
+		SegmentReader reader = new SegmentReader(segment.channel);
+		byte[] header = new byte[HEADER_SIZE];
+		long offset = 0L;
+		long corruptFrom = -1L;
+		
+		while (reader.read(offset, header)) {
+			ByteBuffer fields = ByteBuffer.wrap(header);
+			int length = fields.getInt();
+			int checksum = fields.getInt();
+			Record record = null;
+			
+			if (length > 0 && length <= MAX_PAYLOAD_SIZE && offset + HEADER_SIZE + length <= reader.size) {
+				byte[] payload = new byte[length];
+				
+				if (reader.read(offset + HEADER_SIZE, payload) && checksum(payload) == checksum) {
+					try {
+						record = Record.decode(payload, new Location(segment.id, offset, HEADER_SIZE + length));
+					} catch (IOException ex) {
+						//A checksum collision on garbage, keep searching
+					}
+				}
+			}
+			if (Objects.isNull(record)) {
+				if (corruptFrom < 0L) {
+					corruptFrom = offset;
+				}
+				offset++;
+				continue;
+			}
+			if (corruptFrom >= 0L) {
+				publishEvent(SessionStoreEventType.STORE_CORRUPT, "skipped bytes " + corruptFrom + "-" + offset + " of segment " + segment.id);
+				corruptFrom = -1L;
+			}
+			records.add(record);
+			offset += record.location.length;
+		}
+		return records;
+	}
+	
+	/**
+	 * Reads the record at a location.
+	 * 
+	 * @param location The location.
+	 * 
+	 * @return The record.
+	 * 
+	 * @throws IOException When the record could not be read or is corrupt.
+	 */
+	private Record read(Location location) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(location.length);
+		FileChannel channel = segments.get(location.segmentId).channel;
+		
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, location.offset + buffer.position()) < 0) {
+				throw new EOFException("Record at " + location + " is cut off");
+			}
+		}
+		buffer.flip();
+		
+		int length = buffer.getInt();
+		int checksum = buffer.getInt();
+		byte[] payload = new byte[length];
+		buffer.get(payload);
+		
+		if (checksum(payload) != checksum) {
+			throw new IOException("Record at " + location + " is corrupt");
+		}
+		return Record.decode(payload, location);
+	}
+	
+	/**
+	 * Creates a new empty segment.
+	 * 
+	 * @param id The segment id.
+	 * 
+	 * @return The segment.
+	 * 
+	 * @throws IOException When the segment could not be created.
+	 */
+	private Segment createSegment(int id) throws IOException {
+		Segment segment = new Segment(id, openChannel(getSegmentPath(id)));
+		segments.put(id, segment);
+		return segment;
+	}
+	
+	/**
+	 * Retrieves the path of a segment.
+	 * 
+	 * @param id The segment id.
+	 * 
+	 * @return The path.
+	 */
+	private Path getSegmentPath(int id) {
+		return dir.resolve(SEGMENT_PREFIX + id + SEGMENT_SUFFIX);
+	}
+	
+	@Override
+	public void close() throws IOException {
+		compactorLock.lock();
+		
+		try {
+			if (Objects.nonNull(compactor)) {
+				compactor.shutdownNow();
+			}
+		} finally {
+			compactorLock.unlock();
+		}
+		compactionLock.lock();
+		appendLock.lock();
+		
+		try {
+			active.channel.force(true);
+			
+			for (Segment segment : segments.values()) {
+				segment.channel.close();
+			}
+		} finally {
+			appendLock.unlock();
+			compactionLock.unlock();
+		}
+	}
+	
+	/**
+	 * Opens a segment channel.
+	 * 
+	 * @param path The segment path.
+	 * 
+	 * @return The channel.
+	 * 
+	 * @throws IOException When the segment could not be opened.
+	 */
+	private static FileChannel openChannel(Path path) throws IOException {
+		return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+	}
+	
+	/**
+	 * Writes a buffer at a position of a channel.
+	 * 
+	 * @param channel The channel.
+	 * 
+	 * @param buffer The buffer.
+	 * 
+	 * @param position The position.
+	 * 
+	 * @throws IOException When the buffer could not be written.
+	 */
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		long start = position - buffer.position();
+		
+		while (buffer.hasRemaining()) {
+			channel.write(buffer, start + buffer.position());
+		}
+	}
+	
+	/**
+	 * Publishes a store event to the listener.
+	 * 
+	 * @param type The event type.
+	 * 
+	 * @param detail The detail.
+	 */
+	private void publishEvent(SessionStoreEventType type, String detail) {
+		listener.onEvent(type, getClass().getName(), detail);
+	}
+	
+	/**
+	 * Parses a json object.
+	 * 
+	 * @param json The json.
+	 * 
+	 * @return The json object.
+	 */
+	private static JsonObject parse(String json) {
+		return new JsonParser().parse(json).getAsJsonObject();
+	}
+	
+	/**
+	 * Computes the checksum of a payload.
+	 * 
+	 * @param payload The payload.
+	 * 
+	 * @return The checksum.
+	 */
+	private static int checksum(byte[] payload) {
+		CRC32 crc = new CRC32();
+		crc.update(payload, 0, payload.length);
+		return (int)crc.getValue();
+	}
+	
+	
+	/**
+	 * A segment file.
+	 */
+	private static final class Segment {
+		
+		/**
+		 * The segment id.
+		 */
+		private final int id;
+		
+		/**
+		 * The file channel.
+		 */
+		private final FileChannel channel;
+		
+		/**
+		 * The size in bytes.
+		 */
+		private final AtomicLong size = new AtomicLong();
+		
+		/**
+		 * The bytes held by records the index points at.
+		 */
+		private final AtomicLong live = new AtomicLong();
+		
+		
+		/**
+		 * Creates a new segment.
+		 * 
+		 * @param id The segment id.
+		 * 
+		 * @param channel The file channel.
+		 */
+		private Segment(int id, FileChannel channel) {
+			this.id = id;
+			this.channel = channel;
+		}
+	
+	}
+	
+	/**
+	 * The location of a record.
+	 */
+	private static final class Location {
+		
+		/**
+		 * The segment id.
+		 */
+		private final int segmentId;
+		
+		/**
+		 * The offset in the segment.
+		 */
+		private final long offset;
+		
+		/**
+		 * The record length including it's header.
+		 */
+		private final int length;
+		
+		
+		/**
+		 * Creates a new location.
+		 * 
+		 * @param segmentId The segment id.
+		 * 
+		 * @param offset The offset in the segment.
+		 * 
+		 * @param length The record length including it's header.
+		 */
+		private Location(int segmentId, long offset, int length) {
+			this.segmentId = segmentId;
+			this.offset = offset;
+			this.length = length;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Location)) {
+				return false;
+			}
+			Location other = (Location)o;
+			return segmentId == other.segmentId && offset == other.offset && length == other.length;
+		}
+		
+		@Override
+		public int hashCode() {
+			return Objects.hash(segmentId, offset, length);
+		}
+		
+		@Override
+		public String toString() {
+			return segmentId + ":" + offset;
+		}
+	
+	}
+	
+	/**
+	 * A record holding a session or the deletion of one.
+	 */
+	private static final class Record {
+		
+		/**
+		 * The record type.
+		 */
+		private final byte type;
+		
+		/**
+		 * The session UUID.
+		 */
+		private final String uuid;
+		
+		/**
+		 * The session json, empty for deletions.
+		 */
+		private final String json;
+		
+		/**
+		 * The location the record was read from.
+		 */
+		private final Location location;
+		
+		
+		/**
+		 * Creates a new record.
+		 * 
+		 * @param type The record type.
+		 * 
+		 * @param uuid The session UUID.
+		 * 
+		 * @param json The session json.
+		 * 
+		 * @param location The location the record was read from.
+		 */
+		private Record(byte type, String uuid, String json, Location location) {
+			this.type = type;
+			this.uuid = uuid;
+			this.json = json;
+			this.location = location;
+		}
+		
+		/**
+		 * Encodes the record including it's header.
+		 * 
+		 * @return The buffer.
+		 */
+		private ByteBuffer toBuffer() {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length() + 64);
+			
+			try (DataOutputStream out = new DataOutputStream(bytes)) {
+				out.writeByte(type);
+				out.writeUTF(uuid);
+				out.write(json.getBytes(StandardCharsets.UTF_8));
+			} catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+			byte[] payload = bytes.toByteArray();
+			ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+			buffer.putInt(payload.length);
+			buffer.putInt(checksum(payload));
+			buffer.put(payload);
+			buffer.flip();
+			return buffer;
+		}
+		
+		/**
+		 * Decodes a record payload.
+		 * 
+		 * @param payload The payload.
+		 * 
+		 * @param location The location the record was read from.
+		 * 
+		 * @return The record.
+		 * 
+		 * @throws IOException When the payload is malformed.
+		 */
+		private static Record decode(byte[] payload, Location location) throws IOException {
+			ByteArrayInputStream bytes = new ByteArrayInputStream(payload);
+			DataInputStream in = new DataInputStream(bytes);
+			byte type = in.readByte();
+			String uuid = in.readUTF();
+			int remaining = bytes.available();
+			String json = new String(payload, payload.length - remaining, remaining, StandardCharsets.UTF_8);
+			return new Record(type, uuid, json, location);
+		}
+	
+	}
+	
+	/**
+	 * Reads a segment through a window, so scanning it doesn't cost a read per record.
+	 */
+	private static final class SegmentReader {
+		
+		/**
+		 * The window size in bytes.
+		 */
+		private static final int WINDOW_SIZE = 1 << 20;
+		
+		/**
+		 * The segment channel.
+		 */
+		private final FileChannel channel;
+		
+		/**
+		 * The segment size.
+		 */
+		private final long size;
+		
+		/**
+		 * The window.
+		 */
+		private final ByteBuffer window = ByteBuffer.allocate(WINDOW_SIZE);
+		
+		/**
+		 * The segment offset the window starts at.
+		 */
+		private long windowStart;
+		
+		/**
+		 * The amount of bytes in the window.
+		 */
+		private int windowLength;
+		
+		
+		/**
+		 * Creates a new segment reader.
+		 * 
+		 * @param channel The segment channel.
+		 * 
+		 * @throws IOException When the segment size could not be retrieved.
+		 */
+		private SegmentReader(FileChannel channel) throws IOException {
+			this.channel = channel;
+			this.size = channel.size();
+		}
+		
+		/**
+		 * Reads bytes at a position.
+		 * 
+		 * @param position The position.
+		 * 
+		 * @param dst The array to fill.
+		 * 
+		 * @return Whether the segment holds enough bytes at the position or not.
+		 * 
+		 * @throws IOException When the segment could not be read.
+		 */
+		private boolean read(long position, byte[] dst) throws IOException {
+			if (position + dst.length > size) {
+				return false;
+			}
+			if (dst.length > WINDOW_SIZE) {
+				ByteBuffer buffer = ByteBuffer.wrap(dst);
+				
+				while (buffer.hasRemaining()) {
+					if (channel.read(buffer, position + buffer.position()) < 0) {
+						return false;
+					}
+				}
+				return true;
+			}
+			if (position < windowStart || position + dst.length > windowStart + windowLength) {
+				window.clear();
+				
+				while (window.hasRemaining() && position + window.position() < size) {
+					if (channel.read(window, position + window.position()) < 0) {
+						break;
+					}
+				}
+				windowStart = position;
+				windowLength = window.position();
+				
+				if (dst.length > windowLength) {
+					return false;
+				}
+			}
+			System.arraycopy(window.array(), (int)(position - windowStart), dst, 0, dst.length);
+			return true;
+		}
+	
+	}
+
+}
@@ -0,0 +1,36 @@
+package com.nattguld.http.store;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.nattguld.http.StorableSession;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+@FunctionalInterface
+public interface SessionBatchWriter {
+	
+	/**
+	 * Writes a batch of sessions.
+	 * The whole batch is considered failed when this throws and will be written again.
+	 * 
+	 * @param batch The sessions.
+	 * 
+	 * @throws IOException When the batch could not be written.
+	 */
+	void write(List<StorableSession> batch) throws IOException;
+	
+	/**
+	 * The writer saving every session to it's own json file.
+	 */
+	SessionBatchWriter JSON_FILES = batch -> {
+		for (StorableSession session : batch) {
+			session.save();
+		}
+	};
+
+}
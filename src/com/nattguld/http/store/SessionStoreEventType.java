@@ -0,0 +1,40 @@
+package com.nattguld.http.store;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public enum SessionStoreEventType {
+	
+	SAVE_FAILED("Failed to save session"),
+	STORE_CORRUPT("Skipped corrupt records of the session store"),
+	IMPORT_SKIPPED("Skipped session file during import"),
+	COMPACTION_FAILED("Session store compaction failed");
+	
+	/**
+	 * The message.
+	 */
+	private final String message;
+	
+	
+	/**
+	 * Creates a new session store event type.
+	 * 
+	 * @param message The message.
+	 */
+	private SessionStoreEventType(String message) {
+		this.message = message;
+	}
+	
+	/**
+	 * Retrieves the message.
+	 * 
+	 * @return The message.
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+}
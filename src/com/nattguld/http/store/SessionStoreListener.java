@@ -0,0 +1,31 @@
+package com.nattguld.http.store;
+
+import java.util.Objects;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+@FunctionalInterface
+public interface SessionStoreListener {
+	
+	/**
+	 * Handles an event of a session store.
+	 * Called on the thread that ran into it, e.g. the flusher or compactor, so it should return quickly.
+	 * 
+	 * @param type The event type.
+	 * 
+	 * @param source The class name of the store.
+	 * 
+	 * @param detail The detail, null if none.
+	 */
+	void onEvent(SessionStoreEventType type, String source, String detail);
+	
+	/**
+	 * The listener writing events to the standard error stream.
+	 */
+	SessionStoreListener STANDARD_ERROR = (type, source, detail) -> System.err.println(source + ": " + type.getMessage() + (Objects.isNull(detail) ? "" : " (" + detail + ")"));
+
+}
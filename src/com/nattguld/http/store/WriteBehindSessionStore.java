@@ -0,0 +1,319 @@
+package com.nattguld.http.store;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.nattguld.http.StorableSession;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public class WriteBehindSessionStore {
+	
+	/**
+	 * The time in milliseconds the flusher waits after a failed batch, doubled per consecutive failure.
+	 */
+	private static final long INITIAL_BACKOFF = 100L;
+	
+	/**
+	 * The longest time in milliseconds the flusher waits after a failed batch.
+	 */
+	private static final long MAX_BACKOFF = TimeUnit.SECONDS.toMillis(30L);
+	
+	/**
+	 * The amount of failed writes after which a session is no longer queued again, it stays dirty for the next save.
+	 */
+	private static final int MAX_ATTEMPTS = 5;
+	
+	/**
+	 * Writes batches of sessions.
+	 */
+	private final SessionBatchWriter writer;
+	
+	/**
+	 * The sessions waiting to be written.
+	 */
+	private final BlockingQueue<StorableSession> queue;
+	
+	/**
+	 * The UUIDs of the queued sessions, used to coalesce repeated saves.
+	 */
+	private final Set<String> queued;
+	
+	/**
+	 * The failed writes per session UUID since it was last written.
+	 */
+	private final Map<String, Integer> attempts;
+	
+	/**
+	 * The amount of failed session writes.
+	 */
+	private final LongAdder failures;
+	
+	/**
+	 * The maximum sessions written per batch.
+	 */
+	private final int batchSize;
+	
+	/**
+	 * The thread flushing the queue.
+	 */
+	private final Thread flusher;
+	
+	/**
+	 * Flushes the queue when the JVM shuts down without the store being closed.
+	 */
+	private final Thread shutdownHook;
+	
+	/**
+	 * Notified of failed session writes.
+	 */
+	private final SessionStoreListener listener;
+	
+	/**
+	 * Whether the store accepts sessions or not.
+	 */
+	private volatile boolean running;
+	
+	
+	/**
+	 * Creates a new write behind store writing sessions to their own json file.
+	 * Every session of a batch is still it's own file write, use a batching writer such as {@link LogSessionStore#writeAll} to write a batch at once.
+	 * 
+	 * @param capacity The maximum sessions waiting to be written.
+	 * 
+	 * @param batchSize The maximum sessions written per batch.
+	 */
+	public WriteBehindSessionStore(int capacity, int batchSize) {
+		this(capacity, batchSize, SessionBatchWriter.JSON_FILES);
+	}
+	
+	/**
+	 * Creates a new write behind store writing failed saves to the standard error stream.
+	 * 
+	 * @param capacity The maximum sessions waiting to be written.
+	 * 
+	 * @param batchSize The maximum sessions written per batch.
+	 * 
+	 * @param writer Writes a batch of sessions at once.
+	 */
+	public WriteBehindSessionStore(int capacity, int batchSize, SessionBatchWriter writer) {
+		this(capacity, batchSize, writer, SessionStoreListener.STANDARD_ERROR);
+	}
+	
+	/**
+	 * Creates a new write behind store.
+	 * 
+	 * @param capacity The maximum sessions waiting to be written.
+	 * 
+	 * @param batchSize The maximum sessions written per batch.
+	 * 
+	 * @param writer Writes a batch of sessions at once.
+	 * 
+	 * @param listener Notified of failed session writes.
+	 */
+	public WriteBehindSessionStore(int capacity, int batchSize, SessionBatchWriter writer, SessionStoreListener listener) {
+		this.writer = writer;
+		this.listener = Objects.requireNonNull(listener);
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		this.queued = ConcurrentHashMap.newKeySet();
+		this.attempts = new ConcurrentHashMap<>();
+		this.failures = new LongAdder();
+		this.batchSize = batchSize;
+		this.running = true;
+		this.flusher = new Thread(this::flushLoop, "session-store-flusher");
+		this.flusher.setDaemon(true);
+		this.flusher.start();
+		this.shutdownHook = new Thread(this::flushOnShutdown, "session-store-shutdown");
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+	}
+	
+	/**
+	 * Queues a session to be saved.
+	 * Clean sessions are skipped and a session that is already queued is written once.
+	 * Blocks while the queue is full.
+	 * 
+	 * @param session The session.
+	 * 
+	 * @throws InterruptedException When interrupted while waiting for queue space.
+	 */
+	public void save(StorableSession session) throws InterruptedException {
+		if (!session.getSessionData().isDirty()) {
+			return;
+		}
+		if (!running) {
+			writeBatch(Collections.singletonList(session));
+			return;
+		}
+		if (!queued.add(session.getUUID())) {
+			return;
+		}
+		try {
+			queue.put(session);
+		} catch (InterruptedException ex) {
+			queued.remove(session.getUUID());
+			throw ex;
+		}
+		if (!running && queue.remove(session)) {
+			queued.remove(session.getUUID());
+			writeBatch(Collections.singletonList(session));
+		}
+	}
+	
+	/**
+	 * Flushes the queue in batches until the store is closed.
+	 * After a failed batch the flusher backs off exponentially, so a failing writer isn't retried in a hot loop.
+	 */
+	private void flushLoop() {
+		List<StorableSession> batch = new ArrayList<>(batchSize);
+		long backoff = 0L;
+		
+		while (running) {
+			if (backoff > 0L) {
+				LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(backoff));
+			}
+			try {
+				StorableSession first = queue.poll(1L, TimeUnit.SECONDS);
+				
+				if (Objects.isNull(first)) {
+					continue;
+				}
+				batch.add(first);
+				queue.drainTo(batch, batchSize - 1);
+				
+				for (StorableSession session : batch) {
+					queued.remove(session.getUUID());
+				}
+				if (writeBatch(batch)) {
+					backoff = 0L;
+				} else {
+					backoff = backoff == 0L ? INITIAL_BACKOFF : Math.min(MAX_BACKOFF, backoff * 2L);
+				}
+			} catch (InterruptedException ex) {
+				//Only stopped through the running flag so a write is never interrupted halfway
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+	
+	/**
+	 * Writes the dirty sessions of a batch at once.
+	 * Sessions are marked clean before writing, so changes made during the write keep them dirty.
+	 * When the write fails they are marked dirty again and queued for another attempt while the store is running,
+	 * up to {@link #MAX_ATTEMPTS} failed writes in a row.
+	 * 
+	 * @param batch The batch.
+	 * 
+	 * @return Whether the write succeeded or not.
+	 */
+	private boolean writeBatch(List<StorableSession> batch) {
+		List<StorableSession> dirty = new ArrayList<>(batch.size());
+		
+		for (StorableSession session : batch) {
+			if (session.getSessionData().isDirty()) {
+				session.getSessionData().markClean();
+				dirty.add(session);
+			}
+		}
+		if (dirty.isEmpty()) {
+			return true;
+		}
+		try {
+			writer.write(dirty);
+		} catch (IOException | RuntimeException ex) {
+			failures.add(dirty.size());
+			
+			for (StorableSession session : dirty) {
+				session.getSessionData().markDirty();
+				listener.onEvent(SessionStoreEventType.SAVE_FAILED, getClass().getName(), session.getUUID() + " (" + ex.getMessage() + ")");
+				
+				if (attempts.merge(session.getUUID(), 1, Integer::sum) >= MAX_ATTEMPTS) {
+					attempts.remove(session.getUUID());
+					continue;
+				}
+				if (running && queued.add(session.getUUID()) && !queue.offer(session)) {
+					queued.remove(session.getUUID());
+				}
+			}
+			return false;
+		}
+		if (!attempts.isEmpty()) {
+			for (StorableSession session : dirty) {
+				attempts.remove(session.getUUID());
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Retrieves the amount of sessions waiting to be written.
+	 * 
+	 * @return The amount.
+	 */
+	public int getPending() {
+		return queue.size();
+	}
+	
+	/**
+	 * Retrieves the amount of failed session writes.
+	 * 
+	 * @return The amount.
+	 */
+	public long getFailures() {
+		return failures.sum();
+	}
+	
+	/**
+	 * Stops the flusher and writes every session that is still queued on the calling thread.
+	 * Sessions saved after closing are written right away.
+	 * 
+	 * @throws InterruptedException When interrupted while waiting for the flusher to finish it's batch.
+	 */
+	public void close() throws InterruptedException {
+		try {
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		} catch (IllegalStateException ex) {
+			//Already shutting down, the hook is the one closing the store
+		}
+		running = false;
+		LockSupport.unpark(flusher);
+		flusher.join();
+		
+		List<StorableSession> remaining = new ArrayList<>(queue.size());
+		queue.drainTo(remaining);
+		
+		for (StorableSession session : remaining) {
+			queued.remove(session.getUUID());
+		}
+		for (int i = 0; i < remaining.size(); i += batchSize) {
+			writeBatch(remaining.subList(i, Math.min(remaining.size(), i + batchSize)));
+		}
+	}
+	
+	/**
+	 * Closes the store when the JVM shuts down, so queued sessions are written even when the owner never closed it.
+	 */
+	private void flushOnShutdown() {
+		try {
+			close();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
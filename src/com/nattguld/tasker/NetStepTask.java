@@ -1,16 +1,40 @@
 package com.nattguld.tasker;
 
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
 
+import com.nattguld.http.BrowserProfiles;
 import com.nattguld.http.ConnectionPolicy;
 import com.nattguld.http.HttpClient;
+import com.nattguld.http.ProxyRegistry;
 import com.nattguld.http.browser.Browser;
-import com.nattguld.http.cfg.SessionConfig;
+import com.nattguld.http.cfg.PolicySnapshot;
 import com.nattguld.http.proxies.HttpProxy;
 import com.nattguld.http.proxies.ProxyManager;
 import com.nattguld.http.proxies.ProxyState;
 import com.nattguld.http.proxies.cfg.ProxyChoice;
-import com.nattguld.http.proxies.cfg.ProxyConfig;
+import com.nattguld.tasker.clients.ClientKey;
+import com.nattguld.tasker.clients.ClientPool;
+import com.nattguld.tasker.events.TaskEventType;
+import com.nattguld.tasker.events.TaskEvents;
+import com.nattguld.tasker.metrics.TaskMetrics;
+import com.nattguld.tasker.metrics.TaskStats;
+import com.nattguld.tasker.proxies.AdaptiveProxyLimit;
+import com.nattguld.tasker.proxies.AdaptiveProxyLimits;
+import com.nattguld.tasker.proxies.ProxyCircuitBreakers;
+import com.nattguld.tasker.proxies.ProxyHealth;
+import com.nattguld.tasker.proxies.ProxyHealthRegistry;
+import com.nattguld.tasker.proxies.ProxyLeaseQueue;
+import com.nattguld.tasker.rates.RateLimits;
+import com.nattguld.tasker.recording.RecordingType;
+import com.nattguld.tasker.recording.TaskRecording;
 import com.nattguld.tasker.steps.Step;
 import com.nattguld.tasker.steps.StepState;
 import com.nattguld.tasker.tasks.impl.StepTask;
@@ -38,7 +62,57 @@ public abstract class NetStepTask extends StepTask {
 	 */
 	private boolean externalClient;
 	
-
+	/**
+	 * The policy snapshot the client is being built with.
+	 */
+	private PolicySnapshot policy;
+	
+	/**
+	 * The key the client was leased from the client pool with, null when not pooled.
+	 */
+	private ClientKey clientKey;
+	
+	/**
+	 * Whether the client can be returned to the client pool or not.
+	 */
+	private boolean reusableClient;
+	
+	/**
+	 * The proxy the client is connected through.
+	 */
+	private HttpProxy leasedProxy;
+	
+	/**
+	 * The client being prepared ahead of the task start.
+	 */
+	private volatile CompletableFuture<PreparedClient> preparedClient;
+	
+	/**
+	 * The stats of the task on the proxy in use.
+	 */
+	private TaskStats stats;
+	
+	/**
+	 * Whether a step failed or threw during the current run.
+	 */
+	private boolean runFailed;
+	
+	/**
+	 * Whether the client was built and the steps of the current run started or not.
+	 */
+	private boolean runStarted;
+	
+	/**
+	 * The client pool assigned by the scheduler running the task.
+	 */
+	private ClientPool assignedClientPool;
+	
+	/**
+	 * Whether selecting the proxy already published why it was refused or not.
+	 */
+	private boolean proxyRefused;
+	
+	
 	/**
 	 * Creates a new network flow.
 	 * 
@@ -69,11 +143,21 @@ public abstract class NetStepTask extends StepTask {
 			@Override
 			public StepState execute() {
 				setStatus("Building client");
+				policy = PolicySnapshot.getSnapshot();
+				runFailed = false;
+				runStarted = false;
+				long start = System.nanoTime();
+				TaskRecording recording = TaskRecording.begin(RecordingType.CLIENT_BUILD);
+				boolean built = buildClient();
+				recording.commit(getIdentifier(), getProxyUUID(leasedProxy), built ? "Built" : "Failed", 0L);
 				
-				if (!buildClient()) {
+				if (!built) {
+					getStats().incrementCancels();
 					setStatus("Failed to build client");
 					return StepState.CANCEL;
 				}
+				getStats().getClientBuildTime().recordSince(start);
+				runStarted = true;
 				setStatus("Client built");
 				return StepState.SUCCESS;
 			}
@@ -84,20 +168,155 @@ public abstract class NetStepTask extends StepTask {
 	protected void onFinish() {
 		super.onFinish();
 		
+		ProxyHealth health = getProxyHealth();
+		
+		if (Objects.nonNull(health)) {
+			if (!runFailed) {
+				health.recordConnect(false);
+				ProxyCircuitBreakers.getSingleton().recordSuccess(leasedProxy, this);
+			}
+			health.recordOutcome(!runFailed);
+		}
+		AdaptiveProxyLimit limit = getAdaptiveLimit();
+		
+		if (Objects.nonNull(limit) && !runFailed) {
+			limit.onSuccess(-1L);
+		}
 		if (!externalClient) {
 			disposeClient();
 		}
+		cancelPrewarm();
+		runStarted = false;
 	}
 	
 	@Override
 	protected void onException(Step step, Exception ex) {
 		super.onException(step, ex);
 		
+		getStats().incrementExceptions();
+		runFailed = true;
+		
+		boolean timeout = isTimeout(ex);
+		ProxyHealth health = getProxyHealth();
+		
+		if (Objects.nonNull(health)) {
+			if (timeout) {
+				health.recordConnect(true);
+			}
+			if (step.isCritical()) {
+				health.recordOutcome(false);
+				ProxyCircuitBreakers.getSingleton().recordFailure(leasedProxy);
+			}
+		}
+		AdaptiveProxyLimit limit = getAdaptiveLimit();
+		
+		if (Objects.nonNull(limit) && (step.isCritical() || timeout)) {
+			limit.onDrop();
+		}
 		if (step.isCritical()) {
+			reusableClient = false;
 			disposeClient();
 		}
 	}
 	
+	@Override
+	protected void onStepFail(Step step) {
+		super.onStepFail(step);
+		
+		getStats().incrementFailures();
+		runFailed = true;
+	}
+	
+	/**
+	 * Wraps a step to record it's wall time and cancels in the task metrics.
+	 * 
+	 * @param step The step.
+	 * 
+	 * @return The timed step.
+	 */
+	protected Step timed(Step step) {
+		return new Step(step.getName()) {
+			@Override
+			public StepState execute() {
+				long start = System.nanoTime();
+				StepState state = null;
+				
+				try {
+					state = step.execute();
+					
+					if (state == StepState.CANCEL) {
+						getStats().incrementCancels();
+					}
+					return state;
+				} finally {
+					long elapsed = System.nanoTime() - start;
+					getStats().getStepTime(step.getName()).record(elapsed);
+					
+					ProxyHealth health = getProxyHealth();
+					
+					if (Objects.nonNull(health)) {
+						health.recordLatency(elapsed);
+					}
+					AdaptiveProxyLimit limit = getAdaptiveLimit();
+					
+					if (Objects.nonNull(limit) && state == StepState.SUCCESS) {
+						limit.onSuccess(elapsed);
+					}
+				}
+			}
+			
+			@Override
+			public boolean isCritical() {
+				return step.isCritical();
+			}
+		};
+	}
+	
+	/**
+	 * Wraps a step to wait for the rate limit of a host through the proxy in use before executing it.
+	 * The step is cancelled when no request slot becomes available within the rate limit timeout.
+	 * 
+	 * @param host The target host of the step's requests.
+	 * 
+	 * @param step The step.
+	 * 
+	 * @return The rate limited step.
+	 */
+	protected Step rateLimited(String host, Step step) {
+		return new Step(step.getName()) {
+			@Override
+			public StepState execute() {
+				if (!awaitRequestSlot(host)) {
+					publishEvent(TaskEventType.RATE_LIMITED, leasedProxy, host);
+					return StepState.CANCEL;
+				}
+				return step.execute();
+			}
+			
+			@Override
+			public boolean isCritical() {
+				return step.isCritical();
+			}
+		};
+	}
+	
+	/**
+	 * Waits for a request slot within the rate limit of a host through the proxy in use.
+	 * Has to be called before every request to the host, waiting parks the thread.
+	 * 
+	 * @param host The target host.
+	 * 
+	 * @return Whether a slot was obtained within the rate limit timeout or not.
+	 */
+	protected boolean awaitRequestSlot(String host) {
+		try {
+			return RateLimits.getSingleton().acquire(host, getProxyUUID(leasedProxy), getRateLimitTimeout(), TimeUnit.MILLISECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+	
 	/**
 	 * Builds the client session.
 	 * 
@@ -110,49 +329,225 @@ public abstract class NetStepTask extends StepTask {
 		if (Objects.nonNull(getClient())) {
 			return true;
 		}
+		PreparedClient prepared = takePreparedClient();
+		
+		if (Objects.isNull(prepared)) {
+			prepared = prepareClient();
+		}
+		if (Objects.isNull(prepared)) {
+			return false;
+		}
+		HttpClient c = prepared.client;
+		
+		setClient(c);
+		leasedProxy = prepared.proxy;
+		clientKey = prepared.key;
+		reusableClient = true;
+		
+		if (Objects.isNull(getClient())) {
+			publishEvent(TaskEventType.CLIENT_INIT_FAILED, leasedProxy);
+			return false;
+		}
+		if (getPolicy().isFiddler()) {
+			HttpClient fiddlerClient = new HttpClient(c.getBrowser(), ProxyManager.FIDDLER_PROXY);
+			fiddlerClient.getCookieJar().importCookies(c.getCookieJar().getCookies());
+			setClient(fiddlerClient);
+		}
+		return true;
+	}
+	
+	/**
+	 * Selects the proxy and leases or creates the client for it.
+	 * 
+	 * @return The prepared client, null when no usable proxy was found.
+	 */
+	private PreparedClient prepareClient() {
+		PolicySnapshot policy = getPolicy();
+		proxyRefused = false;
 		HttpProxy proxy = buildProxy();
 		
 		if (Objects.isNull(proxy)) {
 			if (Objects.nonNull(getProxy())) {
-				System.err.println(getClass().getName() + ": Failed to retrieve proxy to use (Max. connections reached)");
-				return false;
+				publishEvent(TaskEventType.PROXY_MAX_CONNECTIONS, getProxy());
+				return null;
 			}
 			if (!hasProxyChoice(ProxyChoice.DIRECT)) {
-				System.err.println(getClass().getName() + ": Failed to retrieve proxy to use");
-				return false;
+				publishEvent(TaskEventType.PROXY_UNAVAILABLE, null);
+				return null;
 			}
 		}
 		if (Objects.nonNull(proxy)) {
 			if (proxy == ProxyManager.INVALID_PROXY) {
-				System.err.println(getClass().getName() + ": Invalid proxy received");
-				return false;
+				if (!proxyRefused) {
+					publishEvent(TaskEventType.INVALID_PROXY, null);
+				}
+				return null;
 			}
-			if (!SessionConfig.getConfig().isAllowFlaggedProxies() 
+			if (!policy.isAllowFlaggedProxies() 
 					&& (proxy.getState() == ProxyState.GHOSTED || proxy.getState() == ProxyState.BLACKLISTED)) {
-				System.err.println(getClass().getName() + ": Invalid proxy state (" + proxy.getState().getName() + ")");
+				publishEvent(TaskEventType.FLAGGED_PROXY, proxy, proxy.getState().getName());
+				TaskRecording.begin(RecordingType.FLAGGED_PROXY).commit(getIdentifier(), proxy.getUUID(), proxy.getState().getName(), 0L);
+				ProxyCircuitBreakers.getSingleton().trip(proxy);
+				releaseProxy(proxy, false);
 				onFlaggedProxy(proxy);
-				return false;
+				ProxyRegistry.invalidateProxy(proxy.getUUID());
+				return null;
+			}
+		}
+		try {
+			return leaseClient(proxy, policy);
+		} catch (RuntimeException ex) {
+			if (Objects.nonNull(proxy)) {
+				releaseProxy(proxy, false);
 			}
+			throw ex;
 		}
-		HttpClient c = new HttpClient(getBrowser(), proxy, getClientPolicies());
+	}
+	
+	/**
+	 * Leases a client from the client pool if one is in use, or creates a new one.
+	 * 
+	 * @param proxy The proxy to connect through.
+	 * 
+	 * @param policy The policy snapshot to build with.
+	 * 
+	 * @return The prepared client.
+	 */
+	private PreparedClient leaseClient(HttpProxy proxy, PolicySnapshot policy) {
+		Browser browser = getBrowser();
+		ClientPool pool = getClientPool();
+		
+		if (Objects.nonNull(pool) && !policy.isFiddler()) {
+			ClientKey key = new ClientKey(proxy, getIdentifier(), browser, getClientPolicies());
+			HttpClient pooled = pool.lease(key);
+			
+			if (Objects.nonNull(pooled)) {
+				return new PreparedClient(pooled, proxy, key, policy);
+			}
+			return new PreparedClient(newClient(browser, proxy), proxy, key, policy);
+		}
+		return new PreparedClient(newClient(browser, proxy), proxy, null, policy);
+	}
+	
+	/**
+	 * Creates a new client.
+	 * 
+	 * @param browser The browser.
+	 * 
+	 * @param proxy The proxy to connect through.
+	 * 
+	 * @return The client.
+	 */
+	private HttpClient newClient(Browser browser, HttpProxy proxy) {
+		HttpClient c = new HttpClient(browser, proxy, getClientPolicies());
 		c.initProxies(getIdentifier());
+		return c;
+	}
+	
+	/**
+	 * Starts building the client on the given executor while the task is still queued.
+	 * The task adopts the client when it starts, or hands it back if the policy changed in the meantime.
+	 * 
+	 * @param executor The executor to build on.
+	 * 
+	 * @return The task.
+	 */
+	public NetStepTask prewarm(Executor executor) {
+		if (externalClient || Objects.nonNull(getClient()) || Objects.nonNull(preparedClient) || !canPrewarm()) {
+			return this;
+		}
+		preparedClient = CompletableFuture.supplyAsync(this::prepareClient, executor);
+		return this;
+	}
+	
+	/**
+	 * Hands back a client prepared ahead of the task start that was not adopted, without waiting for it.
+	 */
+	public void cancelPrewarm() {
+		CompletableFuture<PreparedClient> future = preparedClient;
+		preparedClient = null;
 		
-		setClient(c);
+		if (Objects.nonNull(future)) {
+			future.thenAccept(this::releasePreparedClient);
+		}
+	}
+	
+	/**
+	 * Takes the client prepared ahead of the task start, waiting for it when it's still being built.
+	 * When it's not ready within the prewarm timeout it's handed back once done and the client is built synchronously instead.
+	 * 
+	 * @return The prepared client, null when none is available or it no longer matches the policy.
+	 */
+	private PreparedClient takePreparedClient() {
+		CompletableFuture<PreparedClient> future = preparedClient;
+		preparedClient = null;
 		
-		if (Objects.isNull(getClient())) {
-			System.err.println(getClass().getName() + " Failed to initialize client");
+		if (Objects.isNull(future)) {
+			return null;
+		}
+		PreparedClient prepared;
+		
+		try {
+			prepared = future.get(getPrewarmTimeout(), TimeUnit.MILLISECONDS);
+		} catch (TimeoutException ex) {
+			future.thenAccept(this::releasePreparedClient);
+			publishEvent(TaskEventType.CLIENT_PREPARE_FAILED, null, ex);
+			return null;
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			future.thenAccept(this::releasePreparedClient);
+			return null;
+		} catch (ExecutionException ex) {
+			publishEvent(TaskEventType.CLIENT_PREPARE_FAILED, null, ex.getCause());
+			return null;
+		}
+		if (Objects.nonNull(prepared) && !prepared.policy.equals(getPolicy())) {
+			releasePreparedClient(prepared);
+			return null;
+		}
+		return prepared;
+	}
+	
+	/**
+	 * Hands back a prepared client that won't be used.
+	 * 
+	 * @param prepared The prepared client.
+	 */
+	private void releasePreparedClient(PreparedClient prepared) {
+		if (Objects.isNull(prepared)) {
+			return;
+		}
+		if (Objects.nonNull(prepared.key)) {
+			getClientPool().release(prepared.key, prepared.client);
+		} else {
+			prepared.client.close();
+		}
+		if (Objects.nonNull(prepared.proxy)) {
+			releaseProxy(prepared.proxy, true);
+		}
+	}
+	
+	/**
+	 * Releases a pooled client, back to the pool unless it failed critically.
+	 * 
+	 * @return Whether the client was pooled or not.
+	 */
+	private boolean releaseClient() {
+		if (Objects.isNull(clientKey)) {
 			return false;
 		}
-		if (ProxyConfig.getConfig().isFiddler()) {
-			HttpClient fiddlerClient = new HttpClient(c.getBrowser(), ProxyManager.FIDDLER_PROXY);
-			fiddlerClient.getCookieJar().importCookies(c.getCookieJar().getCookies());
-			setClient(fiddlerClient);
+		if (reusableClient) {
+			getClientPool().release(clientKey, c);
+		} else {
+			c.close();
 		}
+		clientKey = null;
 		return true;
 	}
 	
 	/**
 	 * Handles what to do when a flagged proxy is encountered.
+	 * Cached session proxies are looked up again afterwards, so a proxy replaced in here is picked up right away.
 	 * 
 	 * @param proxy The proxy.
 	 */
@@ -167,13 +562,147 @@ public abstract class NetStepTask extends StepTask {
 	 */
 	protected HttpProxy buildProxy() {
 		if (Objects.nonNull(getProxy()) && getProxy() != ProxyManager.INVALID_PROXY && getProxy() != ProxyManager.LOCALHOST) {
-			if (!getProxy().getLocalConfig().canAddUser(getIdentifier(), isUniqueProxyUser())) {
-				System.err.println(getClass().getName() + " Cant add user to proxy at this time");
-				return ProxyManager.INVALID_PROXY;
+			if (!ProxyCircuitBreakers.getSingleton().isAllowing(getProxy())) {
+				return refuseProxy(TaskEventType.PROXY_CIRCUIT_OPEN, getProxy());
+			}
+			if (!awaitProxySlot(getProxy())) {
+				return refuseProxy(TaskEventType.PROXY_SLOT_UNAVAILABLE, getProxy());
+			}
+			if (!ProxyCircuitBreakers.getSingleton().tryAcquire(getProxy(), this)) {
+				releaseProxy(getProxy(), false);
+				return refuseProxy(TaskEventType.PROXY_CIRCUIT_OPEN, getProxy());
 			}
 			return getProxy();
 		}
-		return ProxyManager.getProxyByChoices(getProxyChoices(), getIdentifier(), isUniqueProxyUser());
+		HttpProxy proxy = ProxyManager.getProxyByChoices(getProxyChoices(), getIdentifier(), isUniqueProxyUser());
+		
+		if (!ProxyHealthRegistry.isScored(proxy)) {
+			return proxy;
+		}
+		ProxyCircuitBreakers breakers = ProxyCircuitBreakers.getSingleton();
+		boolean allowed = isAvailable(proxy);
+		
+		if (isHealthRouted()) {
+			HttpProxy alternative = ProxyManager.getProxyByChoices(getProxyChoices(), getIdentifier(), isUniqueProxyUser());
+			
+			if (isAvailable(alternative)) {
+				HttpProxy chosen = allowed ? ProxyHealthRegistry.getSingleton().choose(proxy, alternative) : alternative;
+				releaseCandidate(chosen == proxy ? alternative : proxy, chosen);
+				proxy = chosen;
+				allowed = true;
+			} else {
+				releaseCandidate(alternative, proxy);
+			}
+		}
+		AdaptiveProxyLimit limit = isAdaptiveProxyLimit() ? AdaptiveProxyLimits.getSingleton().getLimit(proxy) : null;
+		
+		if (!allowed || (Objects.nonNull(limit) && !limit.tryAcquire())) {
+			removeProxyUser(proxy);
+			return refuseProxy(breakers.isAllowing(proxy) ? TaskEventType.PROXY_SLOT_UNAVAILABLE : TaskEventType.PROXY_CIRCUIT_OPEN, proxy);
+		}
+		if (!breakers.tryAcquire(proxy, this)) {
+			if (Objects.nonNull(limit)) {
+				limit.release();
+			}
+			removeProxyUser(proxy);
+			return refuseProxy(TaskEventType.PROXY_CIRCUIT_OPEN, proxy);
+		}
+		return proxy;
+	}
+	
+	/**
+	 * Publishes why a proxy was refused, so it's not reported as invalid on top.
+	 * 
+	 * @param type The event type.
+	 * 
+	 * @param proxy The refused proxy.
+	 * 
+	 * @return The invalid proxy.
+	 */
+	private HttpProxy refuseProxy(TaskEventType type, HttpProxy proxy) {
+		publishEvent(type, proxy);
+		proxyRefused = true;
+		return ProxyManager.INVALID_PROXY;
+	}
+	
+	/**
+	 * Removes the task from the users of a drawn candidate proxy that lost the choice.
+	 * Drawing the same proxy twice admits the task once, so it stays a user when the loser is the chosen proxy.
+	 * 
+	 * @param loser The candidate that lost.
+	 * 
+	 * @param chosen The chosen proxy.
+	 */
+	private void releaseCandidate(HttpProxy loser, HttpProxy chosen) {
+		if (loser != chosen) {
+			removeProxyUser(loser);
+		}
+	}
+	
+	/**
+	 * Retrieves whether a drawn proxy can take the task or not, without claiming anything on it.
+	 * 
+	 * @param proxy The proxy.
+	 * 
+	 * @return The result.
+	 */
+	private boolean isAvailable(HttpProxy proxy) {
+		if (!ProxyCircuitBreakers.getSingleton().isAllowing(proxy)) {
+			return false;
+		}
+		return !isAdaptiveProxyLimit() || AdaptiveProxyLimits.getSingleton().getLimit(proxy).hasCapacity();
+	}
+	
+	/**
+	 * Checks whether the proxy accepts this task as user, waiting in line for a slot when a lease timeout is set.
+	 * With adaptive limits a slot of the proxy's adaptive limit is claimed first, the static user cap stays the upper bound for every user.
+	 * 
+	 * @param proxy The proxy.
+	 * 
+	 * @return Whether the task can use the proxy or not.
+	 */
+	private boolean awaitProxySlot(HttpProxy proxy) {
+		BooleanSupplier admission;
+		
+		if (isAdaptiveProxyLimit()) {
+			AdaptiveProxyLimit limit = AdaptiveProxyLimits.getSingleton().getLimit(proxy);
+			admission = () -> {
+				if (!limit.tryAcquire()) {
+					return false;
+				}
+				if (proxy.getLocalConfig().canAddUser(getIdentifier(), isUniqueProxyUser())) {
+					return true;
+				}
+				limit.release();
+				return false;
+			};
+		} else {
+			admission = () -> proxy.getLocalConfig().canAddUser(getIdentifier(), isUniqueProxyUser());
+		}
+		
+		TaskRecording recording = TaskRecording.begin(RecordingType.PROXY_ACQUIRE);
+		boolean acquired = false;
+		
+		if (getProxyLeaseTimeout() <= 0L) {
+			try {
+				acquired = admission.getAsBoolean();
+				return acquired;
+			} finally {
+				recording.commit(getIdentifier(), proxy.getUUID(), acquired ? "Acquired" : "Refused", 0L);
+			}
+		}
+		long start = System.nanoTime();
+		
+		try {
+			acquired = ProxyLeaseQueue.getSingleton().acquire(proxy, getProxyLeaseTimeout(), TimeUnit.MILLISECONDS, admission);
+			return acquired;
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return false;
+		} finally {
+			TaskMetrics.getSingleton().getStats(getIdentifier(), proxy.getUUID()).getProxyWaitTime().recordSince(start);
+			recording.commit(getIdentifier(), proxy.getUUID(), acquired ? "Acquired" : "Timed out", 0L);
+		}
 	}
 	
 	/**
@@ -183,15 +712,59 @@ public abstract class NetStepTask extends StepTask {
 		if (externalClient) {
 			return;
 		}
-		if (Objects.nonNull(c)) {
-			c.close();
+		boolean closed = Objects.nonNull(c);
+		
+		if (closed) {
+			TaskRecording recording = TaskRecording.begin(RecordingType.DISPOSE_CLIENT);
+			boolean pooled = releaseClient();
+			
+			if (!pooled) {
+				c.close();
+			}
 			setClient(null);
+			recording.commit(getIdentifier(), getProxyUUID(leasedProxy), pooled ? "Pooled" : "Closed", 0L);
+		}
+		if (Objects.nonNull(leasedProxy)) {
+			releaseProxy(leasedProxy, closed);
+			leasedProxy = null;
 		}
 		if (rebuild) {
+			policy = PolicySnapshot.getSnapshot();
 			buildClient();
 		}
 	}
 	
+	/**
+	 * Releases the slot held on a proxy and wakes the next task waiting for it.
+	 * 
+	 * @param proxy The proxy.
+	 * 
+	 * @param userReleased Whether closing or pooling the client already released the proxy user or not.
+	 */
+	private void releaseProxy(HttpProxy proxy, boolean userReleased) {
+		TaskRecording recording = TaskRecording.begin(RecordingType.PROXY_RELEASE);
+		
+		if (!userReleased) {
+			removeProxyUser(proxy);
+		}
+		if (isAdaptiveProxyLimit() && ProxyHealthRegistry.isScored(proxy)) {
+			AdaptiveProxyLimits.getSingleton().getLimit(proxy).release();
+		}
+		ProxyLeaseQueue.getSingleton().release(proxy);
+		recording.commit(getIdentifier(), proxy.getUUID());
+	}
+	
+	/**
+	 * Removes the task from the users of a proxy it was admitted to.
+	 * 
+	 * @param proxy The proxy.
+	 */
+	private void removeProxyUser(HttpProxy proxy) {
+		if (Objects.nonNull(proxy) && proxy != ProxyManager.INVALID_PROXY && proxy != ProxyManager.LOCALHOST) {
+			proxy.getLocalConfig().removeUser(getIdentifier());
+		}
+	}
+	
 	/**
 	 * Disposes the client in use.
 	 */
@@ -228,6 +801,52 @@ public abstract class NetStepTask extends StepTask {
 		return c;
 	}
 	
+	/**
+	 * Whether the client can be built ahead of the task start or not.
+	 * 
+	 * @return The result.
+	 */
+	protected boolean canPrewarm() {
+		return true;
+	}
+	
+	/**
+	 * Retrieves how long to wait for a client prepared ahead of the task start before building one synchronously.
+	 * 
+	 * @return The timeout in milliseconds.
+	 */
+	protected long getPrewarmTimeout() {
+		return 10_000L;
+	}
+	
+	/**
+	 * Retrieves how long to wait for a request slot within a host's rate limit.
+	 * 
+	 * @return The timeout in milliseconds.
+	 */
+	protected long getRateLimitTimeout() {
+		return 30_000L;
+	}
+	
+	/**
+	 * Whether to pick the healthier of two candidate proxies when no proxy is bound or not.
+	 * 
+	 * @return The result.
+	 */
+	protected boolean isHealthRouted() {
+		return true;
+	}
+	
+	/**
+	 * Whether proxies are admitted through an adaptive concurrency limit within their static user cap or not.
+	 * An overridden {@link #buildProxy()} returning a proxy it selected itself has to claim the limit's slot as well.
+	 * 
+	 * @return The result.
+	 */
+	protected boolean isAdaptiveProxyLimit() {
+		return false;
+	}
+	
 	/**
 	 * Whether to keep the connection alive throughout resets or not.
 	 * 
@@ -237,6 +856,37 @@ public abstract class NetStepTask extends StepTask {
 		return false;
 	}
 	
+	/**
+	 * Retrieves the pool to lease clients from.
+	 * Pooled clients keep their connections between tasks using the same proxy, browser and policies.
+	 * 
+	 * @return The client pool, null to build a new client for every run unless a scheduler assigned one.
+	 */
+	protected ClientPool getClientPool() {
+		return assignedClientPool;
+	}
+	
+	/**
+	 * Assigns the client pool to lease clients from, used when the task doesn't provide it's own.
+	 * 
+	 * @param clientPool The client pool.
+	 * 
+	 * @return The task.
+	 */
+	public NetStepTask assignClientPool(ClientPool clientPool) {
+		this.assignedClientPool = clientPool;
+		return this;
+	}
+	
+	/**
+	 * Retrieves how long to wait for a slot on the bound proxy when it has reached it's max. connections.
+	 * 
+	 * @return The timeout in milliseconds, 0 to fail right away.
+	 */
+	protected long getProxyLeaseTimeout() {
+		return 0L;
+	}
+	
 	/**
 	 * Whether to ignore users or not.
 	 * 
@@ -257,11 +907,12 @@ public abstract class NetStepTask extends StepTask {
 
 	/**
 	 * Retrieves the user agent.
+	 * By default a shared browser is drawn from the prebuilt profiles, so pooled clients can be reused across runs.
 	 * 
 	 * @return The user agent.
 	 */
 	protected Browser getBrowser() {
-		return new Browser();
+		return BrowserProfiles.getSingleton().draw().getBrowser();
 	}
 	
 	/**
@@ -299,6 +950,123 @@ public abstract class NetStepTask extends StepTask {
 		return null;
 	}
 	
+	/**
+	 * Retrieves the policy snapshot the client is being built with.
+	 * 
+	 * @return The policy snapshot.
+	 */
+	protected PolicySnapshot getPolicy() {
+		return Objects.isNull(policy) ? PolicySnapshot.getSnapshot() : policy;
+	}
+	
+	/**
+	 * Publishes a task event.
+	 * 
+	 * @param type The event type.
+	 * 
+	 * @param proxy The proxy involved, null if none.
+	 */
+	protected void publishEvent(TaskEventType type, HttpProxy proxy) {
+		publishEvent(type, proxy, null);
+	}
+	
+	/**
+	 * Publishes a task event.
+	 * 
+	 * @param type The event type.
+	 * 
+	 * @param proxy The proxy involved, null if none.
+	 * 
+	 * @param detail Additional detail, null if none.
+	 */
+	protected void publishEvent(TaskEventType type, HttpProxy proxy, Object detail) {
+		TaskEvents events = TaskEvents.getSingleton();
+		
+		if (events.isEnabled()) {
+			events.publish(type, getIdentifier(), getProxyUUID(proxy), detail);
+		}
+	}
+	
+	/**
+	 * Retrieves whether a step failed or threw during the current run.
+	 * 
+	 * @return The result.
+	 */
+	protected boolean isRunFailed() {
+		return runFailed;
+	}
+	
+	/**
+	 * Retrieves whether the client was built and the steps of the current run started, e.g. to tell a run apart from one cancelled while building the client.
+	 * 
+	 * @return The result.
+	 */
+	protected boolean isRunStarted() {
+		return runStarted;
+	}
+	
+	/**
+	 * Retrieves the stats of the task on the proxy in use.
+	 * 
+	 * @return The stats.
+	 */
+	protected TaskStats getStats() {
+		String proxyUUID = getProxyUUID(leasedProxy);
+		
+		if (Objects.isNull(stats) || !Objects.equals(stats.getProxyUUID(), proxyUUID)) {
+			stats = TaskMetrics.getSingleton().getStats(getIdentifier(), proxyUUID);
+		}
+		return stats;
+	}
+	
+	/**
+	 * Retrieves the health of the proxy in use.
+	 * 
+	 * @return The health, null when not connected through a proxy.
+	 */
+	private ProxyHealth getProxyHealth() {
+		return ProxyHealthRegistry.isScored(leasedProxy) ? ProxyHealthRegistry.getSingleton().getHealth(leasedProxy) : null;
+	}
+	
+	/**
+	 * Retrieves the adaptive limit of the proxy in use.
+	 * 
+	 * @return The limit, null when not connected through a proxy or not adaptive.
+	 */
+	private AdaptiveProxyLimit getAdaptiveLimit() {
+		if (!isAdaptiveProxyLimit() || !ProxyHealthRegistry.isScored(leasedProxy)) {
+			return null;
+		}
+		return AdaptiveProxyLimits.getSingleton().getLimit(leasedProxy);
+	}
+	
+	/**
+	 * Retrieves whether an exception was caused by a timeout or refused connection or not.
+	 * 
+	 * @param ex The exception.
+	 * 
+	 * @return The result.
+	 */
+	private static boolean isTimeout(Throwable ex) {
+		for (Throwable cause = ex; Objects.nonNull(cause); cause = cause.getCause()) {
+			if (cause instanceof InterruptedIOException || cause instanceof ConnectException || cause instanceof TimeoutException) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Retrieves the UUID of a proxy.
+	 * 
+	 * @param proxy The proxy.
+	 * 
+	 * @return The UUID, null if there's no proxy.
+	 */
+	protected static String getProxyUUID(HttpProxy proxy) {
+		return Objects.isNull(proxy) ? null : proxy.getUUID();
+	}
+	
 	/**
 	 * Retrieves the proxy bound to the task if any.
 	 * 
@@ -307,5 +1075,52 @@ public abstract class NetStepTask extends StepTask {
 	public HttpProxy getProxy() {
 		return proxy;
 	}
+	
+	
+	/**
+	 * A client built for the task along with what it was built with.
+	 */
+	private static final class PreparedClient {
+		
+		/**
+		 * The client.
+		 */
+		private final HttpClient client;
+		
+		/**
+		 * The proxy the client connects through.
+		 */
+		private final HttpProxy proxy;
+		
+		/**
+		 * The client pool key, null when not pooled.
+		 */
+		private final ClientKey key;
+		
+		/**
+		 * The policy snapshot the client was built with.
+		 */
+		private final PolicySnapshot policy;
+		
+		
+		/**
+		 * Creates a new prepared client.
+		 * 
+		 * @param client The client.
+		 * 
+		 * @param proxy The proxy the client connects through.
+		 * 
+		 * @param key The client pool key, null when not pooled.
+		 * 
+		 * @param policy The policy snapshot the client was built with.
+		 */
+		private PreparedClient(HttpClient client, HttpProxy proxy, ClientKey key, PolicySnapshot policy) {
+			this.client = client;
+			this.proxy = proxy;
+			this.key = key;
+			this.policy = policy;
+		}
+	
+	}
 
 }
@@ -0,0 +1,126 @@
+package com.nattguld.tasker.clients;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import com.nattguld.http.ConnectionPolicy;
+import com.nattguld.http.browser.Browser;
+import com.nattguld.http.proxies.HttpProxy;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public final class ClientKey {
+	
+	/**
+	 * The proxy, null for direct connections.
+	 */
+	private final HttpProxy proxy;
+	
+	/**
+	 * The proxy UUID, null for direct connections.
+	 */
+	private final String proxyUUID;
+	
+	/**
+	 * The identifier the proxy user is registered with.
+	 */
+	private final String identifier;
+	
+	/**
+	 * The browser user agent.
+	 */
+	private final String userAgent;
+	
+	/**
+	 * The browser, compared by identity.
+	 * Tasks drawing from the same browser profile or sharing a session share it's browser, so their keys match without fingerprinting it.
+	 */
+	private final Browser browser;
+	
+	/**
+	 * The connection policies.
+	 */
+	private final ConnectionPolicy[] policies;
+	
+	/**
+	 * The hash code.
+	 */
+	private final int hash;
+	
+	
+	/**
+	 * Creates a new client key.
+	 * 
+	 * @param proxy The proxy.
+	 * 
+	 * @param identifier The identifier the proxy user is registered with.
+	 * 
+	 * @param browser The browser.
+	 * 
+	 * @param policies The connection policies.
+	 */
+	public ClientKey(HttpProxy proxy, String identifier, Browser browser, ConnectionPolicy[] policies) {
+		this.proxy = proxy;
+		this.proxyUUID = Objects.isNull(proxy) ? null : proxy.getUUID();
+		this.identifier = identifier;
+		this.userAgent = browser.getUserAgent();
+		this.browser = browser;
+		this.policies = Objects.isNull(policies) ? new ConnectionPolicy[0] : policies.clone();
+		this.hash = Objects.hash(proxyUUID, identifier, System.identityHashCode(browser), Arrays.hashCode(this.policies));
+	}
+	
+	/**
+	 * Retrieves the proxy.
+	 * 
+	 * @return The proxy, null for direct connections.
+	 */
+	public HttpProxy getProxy() {
+		return proxy;
+	}
+	
+	/**
+	 * Retrieves the proxy UUID.
+	 * 
+	 * @return The proxy UUID.
+	 */
+	public String getProxyUUID() {
+		return proxyUUID;
+	}
+	
+	/**
+	 * Retrieves the identifier the proxy user is registered with.
+	 * 
+	 * @return The identifier.
+	 */
+	public String getIdentifier() {
+		return identifier;
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof ClientKey)) {
+			return false;
+		}
+		ClientKey other = (ClientKey)o;
+		return hash == other.hash && Objects.equals(proxyUUID, other.proxyUUID) && Objects.equals(identifier, other.identifier)
+				&& browser == other.browser && Arrays.equals(policies, other.policies);
+	}
+	
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+	
+	@Override
+	public String toString() {
+		return (Objects.isNull(proxyUUID) ? "direct" : proxyUUID) + " / " + identifier + " / " + userAgent;
+	}
+
+}
@@ -0,0 +1,237 @@
+package com.nattguld.tasker.clients;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.nattguld.http.HttpClient;
+import com.nattguld.http.proxies.ProxyManager;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public class ClientPool {
+	
+	/**
+	 * The maximum idle clients kept per key.
+	 */
+	private final int maxIdlePerKey;
+	
+	/**
+	 * The time in nanoseconds after which an idle client is evicted.
+	 */
+	private final long idleTimeout;
+	
+	/**
+	 * The idle clients per key.
+	 */
+	private final Map<ClientKey, Bucket> buckets;
+	
+	/**
+	 * The last time idle clients were evicted.
+	 */
+	private final AtomicLong lastEviction;
+	
+	
+	/**
+	 * Creates a new client pool.
+	 * 
+	 * @param maxIdlePerKey The maximum idle clients kept per key.
+	 * 
+	 * @param idleTimeout The time after which an idle client is evicted.
+	 * 
+	 * @param unit The time unit.
+	 */
+	public ClientPool(int maxIdlePerKey, long idleTimeout, TimeUnit unit) {
+		if (maxIdlePerKey < 1) {
+			throw new IllegalArgumentException("At least one idle client per key is required");
+		}
+		this.maxIdlePerKey = maxIdlePerKey;
+		this.idleTimeout = unit.toNanos(idleTimeout);
+		this.buckets = new ConcurrentHashMap<>();
+		this.lastEviction = new AtomicLong(System.nanoTime());
+	}
+	
+	/**
+	 * Leases the most recently used idle client for a key.
+	 * 
+	 * @param key The client key.
+	 * 
+	 * @return The client, null if none is idle.
+	 */
+	public HttpClient lease(ClientKey key) {
+		Bucket bucket = buckets.get(key);
+		
+		if (Objects.isNull(bucket)) {
+			return null;
+		}
+		long now = System.nanoTime();
+		IdleClient idle;
+		
+		while (Objects.nonNull(idle = bucket.clients.pollFirst())) {
+			bucket.size.decrementAndGet();
+			
+			if (now - idle.since < idleTimeout) {
+				return idle.client;
+			}
+			idle.client.close();
+		}
+		return null;
+	}
+	
+	/**
+	 * Returns a leased client to the pool.
+	 * The cookie jar and referer are cleared so the next lease starts without state of the previous one.
+	 * The proxy user is released as well, idle clients don't count towards a proxy's users.
+	 * 
+	 * @param key The client key.
+	 * 
+	 * @param client The client.
+	 */
+	public void release(ClientKey key, HttpClient client) {
+		client.getCookieJar().clear();
+		client.getRequestExecutor().setLastReferer(null);
+		
+		if (Objects.nonNull(key.getProxy()) && key.getProxy() != ProxyManager.INVALID_PROXY && key.getProxy() != ProxyManager.LOCALHOST) {
+			key.getProxy().getLocalConfig().removeUser(key.getIdentifier());
+		}
+		
+		IdleClient idle = new IdleClient(client);
+		
+		buckets.compute(key, (k, bucket) -> {
+			Bucket target = Objects.isNull(bucket) ? new Bucket() : bucket;
+			
+			if (target.size.get() < maxIdlePerKey) {
+				target.size.incrementAndGet();
+				target.clients.offerFirst(idle);
+				idle.pooled = true;
+			}
+			return target;
+		});
+		if (!idle.pooled) {
+			client.close();
+		}
+		long now = System.nanoTime();
+		long last = lastEviction.get();
+		
+		if (now - last >= idleTimeout / 2 && lastEviction.compareAndSet(last, now)) {
+			evictIdle();
+		}
+	}
+	
+	/**
+	 * Closes all clients that have been idle for longer than the idle timeout and drops the keys left without idle clients.
+	 */
+	public void evictIdle() {
+		long now = System.nanoTime();
+		
+		for (Map.Entry<ClientKey, Bucket> entry : buckets.entrySet()) {
+			Bucket bucket = entry.getValue();
+			IdleClient idle;
+			
+			while (Objects.nonNull(idle = bucket.clients.peekLast()) && now - idle.since >= idleTimeout) {
+				if (bucket.clients.removeLastOccurrence(idle)) {
+					bucket.size.decrementAndGet();
+					idle.client.close();
+				}
+			}
+			if (bucket.size.get() <= 0) {
+				buckets.computeIfPresent(entry.getKey(), (k, b) -> b.size.get() <= 0 ? null : b);
+			}
+		}
+	}
+	
+	/**
+	 * Closes all idle clients.
+	 */
+	public void close() {
+		for (Bucket bucket : buckets.values()) {
+			IdleClient idle;
+			
+			while (Objects.nonNull(idle = bucket.clients.pollFirst())) {
+				bucket.size.decrementAndGet();
+				idle.client.close();
+			}
+		}
+	}
+	
+	/**
+	 * Retrieves the amount of keys holding idle clients.
+	 * 
+	 * @return The amount.
+	 */
+	public int getKeyCount() {
+		return buckets.size();
+	}
+	
+	/**
+	 * Retrieves the amount of idle clients for a key.
+	 * 
+	 * @param key The client key.
+	 * 
+	 * @return The amount.
+	 */
+	public int getIdleCount(ClientKey key) {
+		Bucket bucket = buckets.get(key);
+		return Objects.isNull(bucket) ? 0 : bucket.size.get();
+	}
+	
+	
+	/**
+	 * Holds the idle clients of a key, most recently released first.
+	 */
+	private static final class Bucket {
+		
+		/**
+		 * The idle clients.
+		 */
+		private final ConcurrentLinkedDeque<IdleClient> clients = new ConcurrentLinkedDeque<>();
+		
+		/**
+		 * The amount of idle clients, tracked apart since the deque size is linear.
+		 */
+		private final AtomicInteger size = new AtomicInteger();
+	
+	}
+	
+	/**
+	 * An idle client.
+	 */
+	private static final class IdleClient {
+		
+		/**
+		 * The client.
+		 */
+		private final HttpClient client;
+		
+		/**
+		 * The time the client became idle.
+		 */
+		private final long since;
+		
+		/**
+		 * Whether the client was taken into the pool or not.
+		 */
+		private boolean pooled;
+		
+		
+		/**
+		 * Creates a new idle client.
+		 * 
+		 * @param client The client.
+		 */
+		private IdleClient(HttpClient client) {
+			this.client = client;
+			this.since = System.nanoTime();
+		}
+	
+	}
+
+}
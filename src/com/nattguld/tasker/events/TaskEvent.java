@@ -0,0 +1,110 @@
+package com.nattguld.tasker.events;
+
+import java.util.Objects;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public final class TaskEvent {
+	
+	/**
+	 * The sequence this event slot was last published for, plus one.
+	 */
+	volatile long published;
+	
+	/**
+	 * The event type.
+	 */
+	TaskEventType type;
+	
+	/**
+	 * The identifier of the task.
+	 */
+	String taskId;
+	
+	/**
+	 * The UUID of the proxy involved, null if none.
+	 */
+	String proxyId;
+	
+	/**
+	 * Additional detail, null if none.
+	 */
+	Object detail;
+	
+	/**
+	 * The time the event occurred in milliseconds since the epoch.
+	 */
+	long timestamp;
+	
+	
+	/**
+	 * Creates a new event slot.
+	 */
+	TaskEvent() {
+		//Slots are reused by the event ring
+	}
+	
+	/**
+	 * Retrieves the event type.
+	 * 
+	 * @return The event type.
+	 */
+	public TaskEventType getType() {
+		return type;
+	}
+	
+	/**
+	 * Retrieves the identifier of the task.
+	 * 
+	 * @return The identifier.
+	 */
+	public String getTaskId() {
+		return taskId;
+	}
+	
+	/**
+	 * Retrieves the UUID of the proxy involved.
+	 * 
+	 * @return The UUID, null if none.
+	 */
+	public String getProxyId() {
+		return proxyId;
+	}
+	
+	/**
+	 * Retrieves the additional detail.
+	 * 
+	 * @return The detail, null if none.
+	 */
+	public Object getDetail() {
+		return detail;
+	}
+	
+	/**
+	 * Retrieves the time the event occurred.
+	 * 
+	 * @return The time in milliseconds since the epoch.
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(128);
+		sb.append(taskId).append(": ").append(type.getMessage());
+		
+		if (Objects.nonNull(detail)) {
+			sb.append(" (").append(detail).append(")");
+		}
+		if (Objects.nonNull(proxyId)) {
+			sb.append(" [proxy ").append(proxyId).append("]");
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,25 @@
+package com.nattguld.tasker.events;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+@FunctionalInterface
+public interface TaskEventSink {
+	
+	/**
+	 * Handles an event.
+	 * The event is reused once this returns so it must not be kept.
+	 * 
+	 * @param event The event.
+	 */
+	void onEvent(TaskEvent event);
+	
+	/**
+	 * The sink writing events to the standard error stream.
+	 */
+	TaskEventSink STANDARD_ERROR = event -> System.err.println(event);
+
+}
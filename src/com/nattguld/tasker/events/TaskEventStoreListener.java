@@ -0,0 +1,60 @@
+package com.nattguld.tasker.events;
+
+import com.nattguld.http.store.SessionStoreEventType;
+import com.nattguld.http.store.SessionStoreListener;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public class TaskEventStoreListener implements SessionStoreListener {
+	
+	/**
+	 * The singleton instance.
+	 */
+	private static final TaskEventStoreListener singleton = new TaskEventStoreListener();
+	
+	
+	@Override
+	public void onEvent(SessionStoreEventType type, String source, String detail) {
+		TaskEvents.getSingleton().publish(getEventType(type), source, null, detail);
+	}
+	
+	/**
+	 * Retrieves the task event type of a session store event.
+	 * 
+	 * @param type The session store event type.
+	 * 
+	 * @return The task event type.
+	 */
+	private static TaskEventType getEventType(SessionStoreEventType type) {
+		switch (type) {
+			case SAVE_FAILED:
+				return TaskEventType.SESSION_SAVE_FAILED;
+				
+			case STORE_CORRUPT:
+				return TaskEventType.SESSION_STORE_CORRUPT;
+				
+			case IMPORT_SKIPPED:
+				return TaskEventType.SESSION_IMPORT_SKIPPED;
+				
+			case COMPACTION_FAILED:
+				return TaskEventType.SESSION_COMPACTION_FAILED;
+				
+			default:
+				throw new IllegalArgumentException("Unknown session store event: " + type);
+		}
+	}
+	
+	/**
+	 * Retrieves the singleton instance.
+	 * 
+	 * @return The singleton instance.
+	 */
+	public static TaskEventStoreListener getSingleton() {
+		return singleton;
+	}
+
+}
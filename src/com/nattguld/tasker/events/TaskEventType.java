@@ -0,0 +1,54 @@
+package com.nattguld.tasker.events;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public enum TaskEventType {
+	
+	PROXY_UNAVAILABLE("Failed to retrieve proxy to use"),
+	PROXY_MAX_CONNECTIONS("Failed to retrieve proxy to use (Max. connections reached)"),
+	PROXY_SLOT_UNAVAILABLE("Cant add user to proxy at this time"),
+	INVALID_PROXY("Invalid proxy received"),
+	FLAGGED_PROXY("Invalid proxy state"),
+	PROXY_CIRCUIT_OPEN("Proxy is skipped while it's circuit is open"),
+	RATE_LIMITED("No request slot within the rate limit of the host"),
+	CLIENT_INIT_FAILED("Failed to initialize client"),
+	CLIENT_PREPARE_FAILED("Failed to prepare client"),
+	PROXY_REQUIRED("No proxy assigned to session while proxy policy requires one"),
+	DIRECT_NOT_ALLOWED("The current proxy policy does not allow a direct session connection"),
+	SCHEDULED_TASK_FAILED("Scheduled task failed"),
+	SESSION_LEASE_TIMEOUT("Failed to lease the session within the timeout"),
+	SESSION_SAVE_FAILED("Failed to save session"),
+	SESSION_STORE_CORRUPT("Skipped corrupt records of the session store"),
+	SESSION_IMPORT_SKIPPED("Skipped session file during import"),
+	SESSION_COMPACTION_FAILED("Session store compaction failed"),
+	SINK_FAILED("Task event sink failed");
+	
+	/**
+	 * The message.
+	 */
+	private final String message;
+	
+	
+	/**
+	 * Creates a new task event type.
+	 * 
+	 * @param message The message.
+	 */
+	private TaskEventType(String message) {
+		this.message = message;
+	}
+	
+	/**
+	 * Retrieves the message.
+	 * 
+	 * @return The message.
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+}
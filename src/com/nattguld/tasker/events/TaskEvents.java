@@ -0,0 +1,288 @@
+package com.nattguld.tasker.events;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public class TaskEvents {
+	
+	/**
+	 * The singleton instance.
+	 */
+	private static final TaskEvents singleton = new TaskEvents(8192);
+	
+	/**
+	 * The event slots.
+	 */
+	private final TaskEvent[] ring;
+	
+	/**
+	 * The mask to map a sequence onto a slot.
+	 */
+	private final int mask;
+	
+	/**
+	 * The next sequence to claim.
+	 */
+	private final AtomicLong tail;
+	
+	/**
+	 * The next sequence to dispatch.
+	 */
+	private volatile long head;
+	
+	/**
+	 * The amount of events dropped because the ring was full.
+	 */
+	private final LongAdder dropped;
+	
+	/**
+	 * The sink events are dispatched to, null when disabled.
+	 */
+	private volatile TaskEventSink sink;
+	
+	/**
+	 * The thread dispatching events to the sink.
+	 */
+	private volatile Thread dispatcher;
+	
+	/**
+	 * Whether the dispatcher is parked waiting for an event or not.
+	 * Producers only unpark it when set, so publishing stays a plain write while events flow.
+	 */
+	private volatile boolean waiting;
+	
+	/**
+	 * Guards changing the sink along with starting and retiring the dispatcher.
+	 */
+	private final ReentrantLock sinkLock;
+	
+	
+	/**
+	 * Creates a new task event ring.
+	 * 
+	 * @param capacity The amount of events that can wait to be dispatched, rounded up to a power of two.
+	 */
+	public TaskEvents(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		
+		this.ring = new TaskEvent[size];
+		this.mask = size - 1;
+		this.tail = new AtomicLong();
+		this.dropped = new LongAdder();
+		this.sinkLock = new ReentrantLock();
+		
+		for (int i = 0; i < size; i++) {
+			ring[i] = new TaskEvent();
+		}
+		setSink(TaskEventSink.STANDARD_ERROR);
+	}
+	
+	/**
+	 * Publishes an event without detail.
+	 * 
+	 * @param type The event type.
+	 * 
+	 * @param taskId The identifier of the task.
+	 * 
+	 * @param proxyId The UUID of the proxy involved, null if none.
+	 */
+	public void publish(TaskEventType type, String taskId, String proxyId) {
+		publish(type, taskId, proxyId, null);
+	}
+	
+	/**
+	 * Publishes an event.
+	 * Does nothing when no sink is set and drops the event when the ring is full, it never blocks.
+	 * 
+	 * @param type The event type.
+	 * 
+	 * @param taskId The identifier of the task.
+	 * 
+	 * @param proxyId The UUID of the proxy involved, null if none.
+	 * 
+	 * @param detail Additional detail, null if none.
+	 */
+	public void publish(TaskEventType type, String taskId, String proxyId, Object detail) {
+		if (Objects.isNull(sink)) {
+			return;
+		}
+		long sequence;
+		
+		do {
+			sequence = tail.get();
+			
+			if (sequence - head >= ring.length) {
+				dropped.increment();
+				return;
+			}
+		} while (!tail.compareAndSet(sequence, sequence + 1));
+		
+		TaskEvent event = ring[(int)sequence & mask];
+		event.type = type;
+		event.taskId = taskId;
+		event.proxyId = proxyId;
+		event.detail = detail;
+		event.timestamp = System.currentTimeMillis();
+		event.published = sequence + 1;
+		
+		if (waiting) {
+			wakeDispatcher();
+		}
+	}
+	
+	/**
+	 * Unparks the dispatcher.
+	 */
+	private void wakeDispatcher() {
+		Thread thread = dispatcher;
+		
+		if (Objects.nonNull(thread)) {
+			LockSupport.unpark(thread);
+		}
+	}
+	
+	/**
+	 * Dispatches published events to the sink in order until the sink is removed.
+	 * Parks while the ring is empty until a producer or a sink change unparks it.
+	 */
+	private void dispatch() {
+		while (true) {
+			TaskEventSink target = sink;
+			
+			if (Objects.isNull(target)) {
+				sinkLock.lock();
+				
+				try {
+					if (Objects.isNull(sink)) {
+						dispatcher = null;
+						return;
+					}
+				} finally {
+					sinkLock.unlock();
+				}
+				continue;
+			}
+			long sequence = head;
+			TaskEvent event = ring[(int)sequence & mask];
+			
+			if (event.published != sequence + 1) {
+				waiting = true;
+				
+				//Checked again after announcing the wait so an event published in between isn't slept through
+				if (event.published != sequence + 1 && Objects.nonNull(sink)) {
+					LockSupport.park(this);
+				}
+				waiting = false;
+				continue;
+			}
+			try {
+				target.onEvent(event);
+			} catch (Throwable t) {
+				//Anything the sink throws, errors included, must not stop the dispatcher while it's still registered
+				reportSinkFailure(target, event, t);
+			} finally {
+				event.taskId = null;
+				event.proxyId = null;
+				event.detail = null;
+				head = sequence + 1;
+			}
+		}
+	}
+	
+	/**
+	 * Reports a sink failing to handle an event to the standard error stream, the way events are reported without a custom sink.
+	 * 
+	 * @param target The sink that failed.
+	 * 
+	 * @param event The event it failed on.
+	 * 
+	 * @param t The failure.
+	 */
+	private void reportSinkFailure(TaskEventSink target, TaskEvent event, Throwable t) {
+		if (target == TaskEventSink.STANDARD_ERROR) {
+			return;
+		}
+		TaskEvent failure = new TaskEvent();
+		failure.type = TaskEventType.SINK_FAILED;
+		failure.taskId = getClass().getName();
+		failure.detail = t + " on " + event.type;
+		failure.timestamp = System.currentTimeMillis();
+		
+		try {
+			TaskEventSink.STANDARD_ERROR.onEvent(failure);
+		} catch (Throwable ignored) {
+			//Nothing left to report to
+		}
+	}
+	
+	/**
+	 * Modifies the sink events are dispatched to.
+	 * 
+	 * @param sink The new sink, null to disable events.
+	 */
+	public void setSink(TaskEventSink sink) {
+		sinkLock.lock();
+		
+		try {
+			this.sink = sink;
+			
+			if (Objects.isNull(sink)) {
+				wakeDispatcher();
+				return;
+			}
+			if (Objects.isNull(dispatcher)) {
+				dispatcher = new Thread(this::dispatch, "task-event-dispatcher");
+				dispatcher.setDaemon(true);
+				dispatcher.start();
+			}
+		} finally {
+			sinkLock.unlock();
+		}
+	}
+	
+	/**
+	 * Retrieves whether events are dispatched or not.
+	 * 
+	 * @return The result.
+	 */
+	public boolean isEnabled() {
+		return Objects.nonNull(sink);
+	}
+	
+	/**
+	 * Retrieves the amount of events waiting to be dispatched.
+	 * 
+	 * @return The amount.
+	 */
+	public int getPending() {
+		return (int)(tail.get() - head);
+	}
+	
+	/**
+	 * Retrieves the amount of events dropped because the ring was full.
+	 * 
+	 * @return The amount.
+	 */
+	public long getDropped() {
+		return dropped.sum();
+	}
+	
+	/**
+	 * Retrieves the singleton instance.
+	 * 
+	 * @return The singleton instance.
+	 */
+	public static TaskEvents getSingleton() {
+		return singleton;
+	}
+
+}
@@ -0,0 +1,210 @@
+package com.nattguld.tasker.exec;
+
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public class NetTaskExecutor {
+	
+	/**
+	 * The executor running the tasks.
+	 */
+	private final ExecutorService executor;
+	
+	/**
+	 * Whether tasks run on virtual threads or not.
+	 */
+	private final boolean virtual;
+	
+	/**
+	 * The permits for tasks in flight.
+	 */
+	private final Semaphore inFlight;
+	
+	/**
+	 * The maximum tasks in flight.
+	 */
+	private final int maxInFlight;
+	
+	
+	/**
+	 * Creates a new executor, running tasks on virtual threads when the runtime supports them.
+	 * 
+	 * @param maxInFlight The maximum tasks in flight.
+	 */
+	public NetTaskExecutor(int maxInFlight) {
+		this(maxInFlight, true);
+	}
+	
+	/**
+	 * Creates a new executor.
+	 * 
+	 * @param maxInFlight The maximum tasks in flight.
+	 * 
+	 * @param preferVirtual Whether to run tasks on virtual threads when the runtime supports them.
+	 */
+	public NetTaskExecutor(int maxInFlight, boolean preferVirtual) {
+		if (maxInFlight < 1) {
+			throw new IllegalArgumentException("At least one task in flight is required");
+		}
+		ExecutorService virtualExecutor = preferVirtual ? createVirtualExecutor() : null;
+		
+		this.virtual = Objects.nonNull(virtualExecutor);
+		this.executor = virtual ? virtualExecutor : Executors.newCachedThreadPool(new NetTaskThreadFactory());
+		this.maxInFlight = maxInFlight;
+		this.inFlight = new Semaphore(maxInFlight, true);
+	}
+	
+	/**
+	 * Submits a task, blocking the caller while the in flight limit is reached.
+	 * Each task runs on it's own thread, which is a virtual one when supported.
+	 * 
+	 * @param task The task to run, e.g. the execution of a net step task.
+	 * 
+	 * @return The future.
+	 * 
+	 * @throws InterruptedException When interrupted while waiting for a permit.
+	 */
+	public Future<?> submit(Runnable task) throws InterruptedException {
+		inFlight.acquire();
+		return submitAcquired(task);
+	}
+	
+	/**
+	 * Submits a task if the in flight limit allows it within the given time.
+	 * 
+	 * @param task The task to run.
+	 * 
+	 * @param timeout The maximum time to wait for a permit.
+	 * 
+	 * @param unit The time unit.
+	 * 
+	 * @return The future, null when no permit was obtained.
+	 * 
+	 * @throws InterruptedException When interrupted while waiting for a permit.
+	 */
+	public Future<?> trySubmit(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+		if (!inFlight.tryAcquire(timeout, unit)) {
+			return null;
+		}
+		return submitAcquired(task);
+	}
+	
+	/**
+	 * Submits a task for which a permit was acquired.
+	 * 
+	 * @param task The task to run.
+	 * 
+	 * @return The future.
+	 */
+	private Future<?> submitAcquired(Runnable task) {
+		try {
+			return executor.submit(() -> {
+				try {
+					task.run();
+				} finally {
+					inFlight.release();
+				}
+			});
+		} catch (RuntimeException ex) {
+			inFlight.release();
+			throw ex;
+		}
+	}
+	
+	/**
+	 * Stops accepting tasks.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+	
+	/**
+	 * Waits for the submitted tasks to finish after a shutdown.
+	 * 
+	 * @param timeout The maximum time to wait.
+	 * 
+	 * @param unit The time unit.
+	 * 
+	 * @return Whether all tasks finished or not.
+	 * 
+	 * @throws InterruptedException When interrupted while waiting.
+	 */
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return executor.awaitTermination(timeout, unit);
+	}
+	
+	/**
+	 * Retrieves the amount of tasks in flight.
+	 * 
+	 * @return The amount.
+	 */
+	public int getInFlight() {
+		return maxInFlight - inFlight.availablePermits();
+	}
+	
+	/**
+	 * Retrieves the maximum tasks in flight.
+	 * 
+	 * @return The maximum.
+	 */
+	public int getMaxInFlight() {
+		return maxInFlight;
+	}
+	
+	/**
+	 * Retrieves whether tasks run on virtual threads or not.
+	 * 
+	 * @return The result.
+	 */
+	public boolean isVirtual() {
+		return virtual;
+	}
+	
+	/**
+	 * Creates a virtual thread per task executor when the runtime provides one.
+	 * Looked up reflectively so the library keeps running on older runtimes.
+	 * 
+	 * @return The executor, null when not supported.
+	 */
+	private static ExecutorService createVirtualExecutor() {
+		try {
+			return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException | UnsupportedOperationException ex) {
+			return null;
+		}
+	}
+	
+	
+	/**
+	 * Creates the daemon platform threads used when virtual threads are not available.
+	 */
+	private static final class NetTaskThreadFactory implements ThreadFactory {
+		
+		/**
+		 * The thread counter.
+		 */
+		private final AtomicInteger counter = new AtomicInteger();
+		
+		
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "net-task-" + counter.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
+	
+	}
+
+}
@@ -0,0 +1,532 @@
+package com.nattguld.tasker.exec;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.nattguld.http.SessionData;
+import com.nattguld.tasker.clients.ClientPool;
+import com.nattguld.tasker.events.TaskEventType;
+import com.nattguld.tasker.events.TaskEvents;
+import com.nattguld.tasker.sessions.SessionTask;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public class ProxyAffinityScheduler {
+	
+	/**
+	 * The lane key used for sessions without a proxy.
+	 */
+	private static final String DIRECT = "";
+	
+	/**
+	 * The executor the workers run on.
+	 */
+	private final NetTaskExecutor executor;
+	
+	/**
+	 * The maximum workers running at once.
+	 */
+	private final int maxWorkers;
+	
+	/**
+	 * The pool the scheduled tasks lease their clients from, null to leave it to the tasks.
+	 */
+	private final ClientPool clientPool;
+	
+	/**
+	 * The maximum tasks running back to back on a lane before moving on to the next lane.
+	 */
+	private final int batchSize;
+	
+	/**
+	 * The maximum workers running tasks of the same proxy at once.
+	 */
+	private final int maxWorkersPerProxy;
+	
+	/**
+	 * The lanes per proxy UUID, a lane is dropped once it has neither waiting tasks nor workers.
+	 */
+	private final Map<String, Lane> lanes;
+	
+	/**
+	 * A worker slot per lane with waiting tasks, in round robin order.
+	 */
+	private final Queue<Lane> ready;
+	
+	/**
+	 * The amount of workers submitted to the executor.
+	 */
+	private final AtomicInteger workers;
+	
+	/**
+	 * The amount of scheduled tasks that did not finish yet.
+	 */
+	private final AtomicInteger pending;
+	
+	/**
+	 * Guards waiting for the scheduled tasks to finish.
+	 */
+	private final ReentrantLock idleLock;
+	
+	/**
+	 * Signalled when the last scheduled task finished.
+	 */
+	private final Condition idle;
+	
+	/**
+	 * Whether the scheduler accepts tasks or not.
+	 */
+	private volatile boolean running;
+	
+	
+	/**
+	 * Creates a new proxy affinity scheduler running it's workers on a net task executor.
+	 * Workers are submitted on demand and finish once no lane has waiting tasks, the executor is left running on shutdown.
+	 * 
+	 * @param executor The executor the workers run on.
+	 * 
+	 * @param workers The maximum workers running at once, within the executor's in flight limit.
+	 * 
+	 * @param maxWorkersPerProxy The maximum workers running tasks of the same proxy at once.
+	 * 
+	 * @param batchSize The maximum tasks running back to back on a proxy before moving on to the next proxy.
+	 * 
+	 * @param clientPool The pool the scheduled tasks lease their clients from, null to leave it to the tasks.
+	 */
+	public ProxyAffinityScheduler(NetTaskExecutor executor, int workers, int maxWorkersPerProxy, int batchSize, ClientPool clientPool) {
+		if (workers < 1 || maxWorkersPerProxy < 1 || batchSize < 1) {
+			throw new IllegalArgumentException("Workers, workers per proxy and batch size have to be positive");
+		}
+		this.executor = executor;
+		this.maxWorkers = workers;
+		this.clientPool = clientPool;
+		this.batchSize = batchSize;
+		this.maxWorkersPerProxy = maxWorkersPerProxy;
+		this.lanes = new ConcurrentHashMap<>();
+		this.ready = new ConcurrentLinkedQueue<>();
+		this.workers = new AtomicInteger();
+		this.pending = new AtomicInteger();
+		this.idleLock = new ReentrantLock();
+		this.idle = idleLock.newCondition();
+		this.running = true;
+	}
+	
+	/**
+	 * Schedules a session task on the lane of the proxy bound to it's session.
+	 * Blocks while a worker has to be started and the executor's in flight limit is reached.
+	 * 
+	 * @param task The task.
+	 * 
+	 * @param execution Runs the task, e.g. it's execution by the tasker.
+	 * 
+	 * @throws InterruptedException When interrupted while starting a worker, the task stays queued for the running workers.
+	 */
+	public void schedule(SessionTask<?> task, Runnable execution) throws InterruptedException {
+		if (!running) {
+			throw new IllegalStateException("The scheduler has been shut down");
+		}
+		if (Objects.nonNull(clientPool)) {
+			task.assignClientPool(clientPool);
+		}
+		SessionData sessionData = task.getSession().getSessionData();
+		String key = sessionData.hasProxy() ? sessionData.getProxyUUID() : DIRECT;
+		Lane lane;
+		pending.incrementAndGet();
+		
+		while (true) {
+			lane = lanes.get(key);
+			
+			if (Objects.isNull(lane)) {
+				lane = lanes.computeIfAbsent(key, Lane::new);
+			}
+			if (lane.offer(execution)) {
+				break;
+			}
+			lanes.remove(key, lane);
+		}
+		if (lane.claimWorker(maxWorkersPerProxy)) {
+			ready.add(lane);
+			
+			if (claimWorker()) {
+				try {
+					executor.submit(this::work);
+				} catch (InterruptedException | RuntimeException ex) {
+					workers.decrementAndGet();
+					throw ex;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Claims a worker slot when less than the maximum workers are running.
+	 * 
+	 * @return Whether a slot was claimed or not.
+	 */
+	private boolean claimWorker() {
+		for (;;) {
+			int current = workers.get();
+			
+			if (current >= maxWorkers) {
+				return false;
+			}
+			if (workers.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+	
+	/**
+	 * Takes lanes in round robin order and runs a batch of their tasks back to back, until no lane has waiting tasks.
+	 */
+	private void work() {
+		boolean finished = false;
+		
+		try {
+			for (;;) {
+				Lane lane = ready.poll();
+				
+				if (Objects.nonNull(lane)) {
+					runBatch(lane);
+					continue;
+				}
+				workers.decrementAndGet();
+				
+				if (ready.isEmpty() || !claimWorker()) {
+					finished = true;
+					return;
+				}
+			}
+		} finally {
+			if (!finished) {
+				workers.decrementAndGet();
+				replaceWorker();
+			}
+		}
+	}
+	
+	/**
+	 * Starts a worker in place of one that failed while lanes are waiting, when the executor has room for it right away.
+	 * Otherwise the waiting lanes are served by the other workers or the worker started by the next scheduled task.
+	 */
+	private void replaceWorker() {
+		if (ready.isEmpty() || !claimWorker()) {
+			return;
+		}
+		try {
+			if (Objects.isNull(executor.trySubmit(this::work, 0L, TimeUnit.MILLISECONDS))) {
+				workers.decrementAndGet();
+			}
+		} catch (InterruptedException ex) {
+			workers.decrementAndGet();
+			Thread.currentThread().interrupt();
+		} catch (RuntimeException ex) {
+			workers.decrementAndGet();
+		}
+	}
+	
+	/**
+	 * Runs a batch of a lane's tasks back to back, queueing the lane again while tasks are waiting.
+	 * 
+	 * @param lane The lane.
+	 */
+	private void runBatch(Lane lane) {
+		boolean released = false;
+		
+		try {
+			for (int i = 0; i < batchSize; i++) {
+				Runnable execution = lane.take();
+				
+				if (Objects.isNull(execution)) {
+					released = true;
+					retireIfIdle(lane);
+					return;
+				}
+				try {
+					execution.run();
+				} catch (RuntimeException ex) {
+					TaskEvents.getSingleton().publish(TaskEventType.SCHEDULED_TASK_FAILED, getClass().getName(), null, ex.getMessage());
+				} catch (Error ex) {
+					TaskEvents.getSingleton().publish(TaskEventType.SCHEDULED_TASK_FAILED, getClass().getName(), null, ex.getMessage());
+					throw ex;
+				} finally {
+					onTaskFinished();
+				}
+			}
+		} finally {
+			if (!released) {
+				if (lane.yieldWorker()) {
+					ready.add(lane);
+				} else {
+					retireIfIdle(lane);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Drops a lane from the lanes once it retired, tasks scheduled meanwhile go to a new lane.
+	 * 
+	 * @param lane The lane.
+	 */
+	private void retireIfIdle(Lane lane) {
+		if (lane.isRetired()) {
+			lanes.remove(lane.key, lane);
+		}
+	}
+	
+	/**
+	 * Wakes the threads waiting for termination once the last scheduled task finished.
+	 */
+	private void onTaskFinished() {
+		if (pending.decrementAndGet() > 0) {
+			return;
+		}
+		idleLock.lock();
+		
+		try {
+			idle.signalAll();
+		} finally {
+			idleLock.unlock();
+		}
+	}
+	
+	/**
+	 * Retrieves the amount of tasks waiting on a proxy.
+	 * 
+	 * @param proxyUUID The proxy UUID, null for sessions without a proxy.
+	 * 
+	 * @return The amount.
+	 */
+	public int getQueued(String proxyUUID) {
+		Lane lane = lanes.get(Objects.isNull(proxyUUID) ? DIRECT : proxyUUID);
+		
+		if (Objects.isNull(lane)) {
+			return 0;
+		}
+		return lane.size();
+	}
+	
+	/**
+	 * Retrieves the amount of proxies with waiting or running tasks.
+	 * 
+	 * @return The amount.
+	 */
+	public int getLaneCount() {
+		return lanes.size();
+	}
+	
+	/**
+	 * Stops accepting tasks, the scheduled ones still run.
+	 * The executor is not shut down.
+	 */
+	public void shutdown() {
+		running = false;
+	}
+	
+	/**
+	 * Waits for the scheduled tasks to finish after a shutdown.
+	 * 
+	 * @param timeout The maximum time to wait.
+	 * 
+	 * @param unit The time unit.
+	 * 
+	 * @return Whether all tasks finished or not.
+	 * 
+	 * @throws InterruptedException When interrupted while waiting.
+	 */
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long remaining = unit.toNanos(timeout);
+		idleLock.lock();
+		
+		try {
+			while (pending.get() > 0) {
+				if (remaining <= 0L) {
+					return false;
+				}
+				remaining = idle.awaitNanos(remaining);
+			}
+			return true;
+		} finally {
+			idleLock.unlock();
+		}
+	}
+	
+	
+	/**
+	 * The tasks waiting on a single proxy.
+	 */
+	private static final class Lane {
+		
+		/**
+		 * The proxy UUID of the lane.
+		 */
+		private final String key;
+		
+		/**
+		 * The waiting tasks.
+		 */
+		private final Deque<Runnable> tasks = new ArrayDeque<>();
+		
+		/**
+		 * The amount of workers running or queued for this lane.
+		 */
+		private int workers;
+		
+		/**
+		 * Guards the tasks and workers, scheduling threads and workers of the lane contend on it.
+		 */
+		private final ReentrantLock lock = new ReentrantLock();
+		
+		/**
+		 * Whether the lane ran out of tasks and workers, it no longer accepts tasks once set.
+		 */
+		private boolean retired;
+		
+		
+		/**
+		 * Creates a new lane.
+		 * 
+		 * @param key The proxy UUID of the lane.
+		 */
+		private Lane(String key) {
+			this.key = key;
+		}
+		
+		/**
+		 * Queues a task.
+		 * 
+		 * @param execution The task.
+		 * 
+		 * @return Whether the task was queued or not, false once the lane retired.
+		 */
+		private boolean offer(Runnable execution) {
+			lock.lock();
+			
+			try {
+				if (retired) {
+					return false;
+				}
+				tasks.offerLast(execution);
+				return true;
+			} finally {
+				lock.unlock();
+			}
+		}
+		
+		/**
+		 * Claims a worker slot when less than the maximum workers serve the lane.
+		 * A retired lane has no tasks left, a worker already ran the task queued before.
+		 * 
+		 * @param maxWorkers The maximum workers serving the lane.
+		 * 
+		 * @return Whether a worker slot was claimed and the lane has to be queued or not.
+		 */
+		private boolean claimWorker(int maxWorkers) {
+			lock.lock();
+			
+			try {
+				if (retired || workers >= maxWorkers) {
+					return false;
+				}
+				workers++;
+				return true;
+			} finally {
+				lock.unlock();
+			}
+		}
+		
+		/**
+		 * Takes the next task, releasing the worker when the lane ran empty.
+		 * 
+		 * @return The task, null when the lane ran empty.
+		 */
+		private Runnable take() {
+			lock.lock();
+			
+			try {
+				Runnable execution = tasks.pollFirst();
+				
+				if (Objects.isNull(execution)) {
+					release();
+				}
+				return execution;
+			} finally {
+				lock.unlock();
+			}
+		}
+		
+		/**
+		 * Hands the worker back after a batch, keeping it's slot when tasks are still waiting.
+		 * 
+		 * @return Whether the lane has to be queued again or not.
+		 */
+		private boolean yieldWorker() {
+			lock.lock();
+			
+			try {
+				if (tasks.isEmpty()) {
+					release();
+					return false;
+				}
+				return true;
+			} finally {
+				lock.unlock();
+			}
+		}
+		
+		/**
+		 * Releases a worker slot, retiring the lane when it was the last one, the lock has to be held.
+		 */
+		private void release() {
+			if (--workers <= 0) {
+				retired = true;
+			}
+		}
+		
+		/**
+		 * Retrieves whether the lane retired or not.
+		 * 
+		 * @return The result.
+		 */
+		private boolean isRetired() {
+			lock.lock();
+			
+			try {
+				return retired;
+			} finally {
+				lock.unlock();
+			}
+		}
+		
+		/**
+		 * Retrieves the amount of waiting tasks.
+		 * 
+		 * @return The amount.
+		 */
+		private int size() {
+			lock.lock();
+			
+			try {
+				return tasks.size();
+			} finally {
+				lock.unlock();
+			}
+		}
+	
+	}
+
+}
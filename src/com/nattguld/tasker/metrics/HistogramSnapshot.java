@@ -0,0 +1,119 @@
+package com.nattguld.tasker.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public class HistogramSnapshot {
+	
+	/**
+	 * The recorded values per bucket.
+	 */
+	private final long[] counts;
+	
+	/**
+	 * The amount of recorded values.
+	 */
+	private final long count;
+	
+	/**
+	 * The sum of the recorded values.
+	 */
+	private final long total;
+	
+	/**
+	 * The highest recorded value.
+	 */
+	private final long max;
+	
+	
+	/**
+	 * Creates a new histogram snapshot.
+	 * 
+	 * @param counts The recorded values per bucket.
+	 * 
+	 * @param count The amount of recorded values.
+	 * 
+	 * @param total The sum of the recorded values.
+	 * 
+	 * @param max The highest recorded value.
+	 */
+	HistogramSnapshot(long[] counts, long count, long total, long max) {
+		this.counts = counts;
+		this.count = count;
+		this.total = total;
+		this.max = max;
+	}
+	
+	/**
+	 * Retrieves the value below which the given percentage of the recorded values fall.
+	 * The value is accurate to about 6 percent.
+	 * 
+	 * @param percentile The percentile, from 0 to 100.
+	 * 
+	 * @param unit The time unit to return.
+	 * 
+	 * @return The value.
+	 */
+	public long getPercentile(double percentile, TimeUnit unit) {
+		if (count == 0L) {
+			return 0L;
+		}
+		long target = Math.max(1L, (long)Math.ceil(Math.min(percentile, 100D) / 100D * count));
+		long seen = 0L;
+		
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			
+			if (seen >= target) {
+				return unit.convert(Math.min(LatencyHistogram.highestValueOf(i), max), TimeUnit.NANOSECONDS);
+			}
+		}
+		return unit.convert(max, TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * Retrieves the mean of the recorded values.
+	 * 
+	 * @param unit The time unit to return.
+	 * 
+	 * @return The mean.
+	 */
+	public long getMean(TimeUnit unit) {
+		return count == 0L ? 0L : unit.convert(total / count, TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * Retrieves the highest recorded value.
+	 * 
+	 * @param unit The time unit to return.
+	 * 
+	 * @return The value.
+	 */
+	public long getMax(TimeUnit unit) {
+		return unit.convert(max, TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * Retrieves the amount of recorded values.
+	 * 
+	 * @return The amount.
+	 */
+	public long getCount() {
+		return count;
+	}
+	
+	@Override
+	public String toString() {
+		return "count=" + count 
+				+ ", mean=" + getMean(TimeUnit.MILLISECONDS) + "ms"
+				+ ", p50=" + getPercentile(50D, TimeUnit.MILLISECONDS) + "ms"
+				+ ", p99=" + getPercentile(99D, TimeUnit.MILLISECONDS) + "ms"
+				+ ", max=" + getMax(TimeUnit.MILLISECONDS) + "ms";
+	}
+
+}
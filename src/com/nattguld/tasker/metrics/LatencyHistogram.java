@@ -0,0 +1,138 @@
+package com.nattguld.tasker.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public class LatencyHistogram {
+	
+	/**
+	 * The amount of bits used for the linear sub buckets within each power of two.
+	 */
+	static final int SUB_BUCKET_BITS = 4;
+	
+	/**
+	 * The amount of sub buckets within each power of two.
+	 */
+	static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	
+	/**
+	 * The highest trackable value in nanoseconds, higher values are clamped.
+	 */
+	static final long MAX_VALUE = (1L << 37) - 1L;
+	
+	/**
+	 * The amount of buckets.
+	 */
+	static final int BUCKET_COUNT = indexOf(MAX_VALUE) + 1;
+	
+	/**
+	 * The recorded values per bucket.
+	 */
+	private final AtomicLongArray counts;
+	
+	/**
+	 * The sum of the recorded values.
+	 */
+	private final AtomicLong total;
+	
+	/**
+	 * The highest recorded value.
+	 */
+	private final AtomicLong max;
+	
+	
+	/**
+	 * Creates a new latency histogram.
+	 */
+	public LatencyHistogram() {
+		this.counts = new AtomicLongArray(BUCKET_COUNT);
+		this.total = new AtomicLong();
+		this.max = new AtomicLong();
+	}
+	
+	/**
+	 * Records a value.
+	 * 
+	 * @param nanos The value in nanoseconds.
+	 */
+	public void record(long nanos) {
+		long value = Math.min(Math.max(nanos, 0L), MAX_VALUE);
+		
+		counts.incrementAndGet(indexOf(value));
+		total.addAndGet(value);
+		
+		long highest;
+		
+		while (value > (highest = max.get())) {
+			if (max.compareAndSet(highest, value)) {
+				break;
+			}
+		}
+	}
+	
+	/**
+	 * Records the time passed since a start time.
+	 * 
+	 * @param startNanos The start time from {@link System#nanoTime()}.
+	 */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+	
+	/**
+	 * Takes a snapshot of the recorded values.
+	 * Values recorded while taking the snapshot may or may not be included.
+	 * 
+	 * @return The snapshot.
+	 */
+	public HistogramSnapshot getSnapshot() {
+		long[] copy = new long[BUCKET_COUNT];
+		long count = 0L;
+		
+		for (int i = 0; i < copy.length; i++) {
+			copy[i] = counts.get(i);
+			count += copy[i];
+		}
+		return new HistogramSnapshot(copy, count, total.get(), max.get());
+	}
+	
+	/**
+	 * Retrieves the bucket index of a value.
+	 * Values below the sub bucket count are exact, higher values keep their top bits.
+	 * 
+	 * @param value The value.
+	 * 
+	 * @return The index.
+	 */
+	static int indexOf(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int)value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		int sub = (int)(value >>> shift) & (SUB_BUCKET_COUNT - 1);
+		return (shift + 1) * SUB_BUCKET_COUNT + sub;
+	}
+	
+	/**
+	 * Retrieves the highest value counted in a bucket.
+	 * 
+	 * @param index The bucket index.
+	 * 
+	 * @return The value.
+	 */
+	static long highestValueOf(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = index / SUB_BUCKET_COUNT - 1;
+		long lowest = (long)(SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+		return lowest + (1L << shift) - 1L;
+	}
+
+}
@@ -0,0 +1,106 @@
+package com.nattguld.tasker.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public class TaskMetrics {
+	
+	/**
+	 * The singleton instance.
+	 */
+	private static final TaskMetrics singleton = new TaskMetrics();
+	
+	/**
+	 * The key used for direct connections.
+	 */
+	private static final String DIRECT = "";
+	
+	/**
+	 * The stats per task identifier and proxy UUID.
+	 */
+	private final Map<String, Map<String, TaskStats>> stats;
+	
+	
+	/**
+	 * Creates a new task metrics registry.
+	 */
+	public TaskMetrics() {
+		this.stats = new ConcurrentHashMap<>();
+	}
+	
+	/**
+	 * Retrieves the stats of a task identifier on a proxy, creating them on first use.
+	 * 
+	 * @param identifier The task identifier.
+	 * 
+	 * @param proxyUUID The proxy UUID, null for direct connections.
+	 * 
+	 * @return The stats.
+	 */
+	public TaskStats getStats(String identifier, String proxyUUID) {
+		Map<String, TaskStats> perProxy = stats.get(identifier);
+		
+		if (Objects.isNull(perProxy)) {
+			perProxy = stats.computeIfAbsent(identifier, k -> new ConcurrentHashMap<>());
+		}
+		String key = Objects.isNull(proxyUUID) ? DIRECT : proxyUUID;
+		TaskStats taskStats = perProxy.get(key);
+		
+		if (Objects.nonNull(taskStats)) {
+			return taskStats;
+		}
+		return perProxy.computeIfAbsent(key, k -> new TaskStats(identifier, proxyUUID));
+	}
+	
+	/**
+	 * Retrieves the stats of every task identifier and proxy.
+	 * 
+	 * @return The stats.
+	 */
+	public List<TaskStats> getStats() {
+		List<TaskStats> all = new ArrayList<>();
+		
+		for (Map<String, TaskStats> perProxy : stats.values()) {
+			all.addAll(perProxy.values());
+		}
+		return all;
+	}
+	
+	/**
+	 * Retrieves the stats of a task identifier on every proxy.
+	 * 
+	 * @param identifier The task identifier.
+	 * 
+	 * @return The stats.
+	 */
+	public List<TaskStats> getStats(String identifier) {
+		Map<String, TaskStats> perProxy = stats.get(identifier);
+		return Objects.isNull(perProxy) ? new ArrayList<>() : new ArrayList<>(perProxy.values());
+	}
+	
+	/**
+	 * Drops all recorded stats.
+	 */
+	public void reset() {
+		stats.clear();
+	}
+	
+	/**
+	 * Retrieves the singleton instance.
+	 * 
+	 * @return The singleton instance.
+	 */
+	public static TaskMetrics getSingleton() {
+		return singleton;
+	}
+
+}
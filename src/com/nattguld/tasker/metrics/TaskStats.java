@@ -0,0 +1,192 @@
+package com.nattguld.tasker.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public class TaskStats {
+	
+	/**
+	 * The task identifier.
+	 */
+	private final String identifier;
+	
+	/**
+	 * The proxy UUID, null for direct connections.
+	 */
+	private final String proxyUUID;
+	
+	/**
+	 * The time it takes to build the client.
+	 */
+	private final LatencyHistogram clientBuildTime;
+	
+	/**
+	 * The time spent waiting for a slot on the proxy.
+	 */
+	private final LatencyHistogram proxyWaitTime;
+	
+	/**
+	 * The wall time per step name.
+	 */
+	private final Map<String, LatencyHistogram> stepTimes;
+	
+	/**
+	 * The amount of failed steps.
+	 */
+	private final LongAdder failures;
+	
+	/**
+	 * The amount of cancelled steps.
+	 */
+	private final LongAdder cancels;
+	
+	/**
+	 * The amount of steps that threw an exception.
+	 */
+	private final LongAdder exceptions;
+	
+	
+	/**
+	 * Creates new task stats.
+	 * 
+	 * @param identifier The task identifier.
+	 * 
+	 * @param proxyUUID The proxy UUID, null for direct connections.
+	 */
+	TaskStats(String identifier, String proxyUUID) {
+		this.identifier = identifier;
+		this.proxyUUID = proxyUUID;
+		this.clientBuildTime = new LatencyHistogram();
+		this.proxyWaitTime = new LatencyHistogram();
+		this.stepTimes = new ConcurrentHashMap<>();
+		this.failures = new LongAdder();
+		this.cancels = new LongAdder();
+		this.exceptions = new LongAdder();
+	}
+	
+	/**
+	 * Retrieves the task identifier.
+	 * 
+	 * @return The task identifier.
+	 */
+	public String getIdentifier() {
+		return identifier;
+	}
+	
+	/**
+	 * Retrieves the proxy UUID.
+	 * 
+	 * @return The proxy UUID, null for direct connections.
+	 */
+	public String getProxyUUID() {
+		return proxyUUID;
+	}
+	
+	/**
+	 * Retrieves the time it takes to build the client.
+	 * 
+	 * @return The histogram.
+	 */
+	public LatencyHistogram getClientBuildTime() {
+		return clientBuildTime;
+	}
+	
+	/**
+	 * Retrieves the time spent waiting for a slot on the proxy.
+	 * 
+	 * @return The histogram.
+	 */
+	public LatencyHistogram getProxyWaitTime() {
+		return proxyWaitTime;
+	}
+	
+	/**
+	 * Retrieves the wall time of a step.
+	 * 
+	 * @param stepName The step name.
+	 * 
+	 * @return The histogram.
+	 */
+	public LatencyHistogram getStepTime(String stepName) {
+		LatencyHistogram histogram = stepTimes.get(stepName);
+		
+		if (Objects.nonNull(histogram)) {
+			return histogram;
+		}
+		return stepTimes.computeIfAbsent(stepName, k -> new LatencyHistogram());
+	}
+	
+	/**
+	 * Retrieves the names of the steps that were timed.
+	 * 
+	 * @return The step names.
+	 */
+	public Set<String> getStepNames() {
+		return Collections.unmodifiableSet(stepTimes.keySet());
+	}
+	
+	/**
+	 * Counts a failed step.
+	 */
+	public void incrementFailures() {
+		failures.increment();
+	}
+	
+	/**
+	 * Retrieves the amount of failed steps.
+	 * 
+	 * @return The amount.
+	 */
+	public long getFailures() {
+		return failures.sum();
+	}
+	
+	/**
+	 * Counts a cancelled step.
+	 */
+	public void incrementCancels() {
+		cancels.increment();
+	}
+	
+	/**
+	 * Retrieves the amount of cancelled steps.
+	 * 
+	 * @return The amount.
+	 */
+	public long getCancels() {
+		return cancels.sum();
+	}
+	
+	/**
+	 * Counts a step that threw an exception.
+	 */
+	public void incrementExceptions() {
+		exceptions.increment();
+	}
+	
+	/**
+	 * Retrieves the amount of steps that threw an exception.
+	 * 
+	 * @return The amount.
+	 */
+	public long getExceptions() {
+		return exceptions.sum();
+	}
+	
+	@Override
+	public String toString() {
+		return identifier + "@" + (Objects.isNull(proxyUUID) ? "direct" : proxyUUID) 
+				+ " [failures=" + getFailures() + ", cancels=" + getCancels() + ", exceptions=" + getExceptions() + "]";
+	}
+
+}
@@ -0,0 +1,215 @@
+package com.nattguld.tasker.proxies;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public class AdaptiveProxyLimit {
+	
+	/**
+	 * The factor the limit is multiplied with on a drop.
+	 */
+	private static final double BACKOFF_RATIO = 0.5D;
+	
+	/**
+	 * The factor over the baseline latency above which a success no longer raises the limit.
+	 */
+	private static final double LATENCY_TOLERANCE = 2D;
+	
+	/**
+	 * The weight of a new sample in the baseline latency.
+	 */
+	private static final double BASELINE_ALPHA = 0.05D;
+	
+	/**
+	 * The lowest limit.
+	 */
+	private final int minLimit;
+	
+	/**
+	 * The highest limit.
+	 */
+	private final int maxLimit;
+	
+	/**
+	 * The minimum time in nanoseconds between two decreases, so a burst of drops backs off once.
+	 */
+	private final long backoffWindow;
+	
+	/**
+	 * The current limit.
+	 */
+	private double limit;
+	
+	/**
+	 * The amount of tasks using the proxy.
+	 */
+	private int inFlight;
+	
+	/**
+	 * The baseline latency in nanoseconds, 0 until sampled.
+	 */
+	private double baseline;
+	
+	/**
+	 * The time of the last decrease.
+	 */
+	private long lastDecrease;
+	
+	/**
+	 * Guards the limit and the tasks in flight.
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+	
+	
+	/**
+	 * Creates a new adaptive proxy limit.
+	 * 
+	 * @param minLimit The lowest limit.
+	 * 
+	 * @param initialLimit The initial limit.
+	 * 
+	 * @param maxLimit The highest limit.
+	 * 
+	 * @param backoffWindow The minimum time in nanoseconds between two decreases.
+	 */
+	AdaptiveProxyLimit(int minLimit, int initialLimit, int maxLimit, long backoffWindow) {
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.backoffWindow = backoffWindow;
+		this.limit = initialLimit;
+		this.lastDecrease = System.nanoTime() - backoffWindow;
+	}
+	
+	/**
+	 * Retrieves whether another task fits within the limit or not.
+	 * 
+	 * @return The result.
+	 */
+	public boolean hasCapacity() {
+		lock.lock();
+		
+		try {
+			return inFlight < (int)limit;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Claims a slot when another task fits within the limit.
+	 * 
+	 * @return Whether a slot was claimed or not.
+	 */
+	public boolean tryAcquire() {
+		lock.lock();
+		
+		try {
+			if (inFlight >= (int)limit) {
+				return false;
+			}
+			inFlight++;
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Releases a claimed slot.
+	 * 
+	 * @throws IllegalStateException When no slot is claimed.
+	 */
+	public void release() {
+		lock.lock();
+		
+		try {
+			if (inFlight <= 0) {
+				throw new IllegalStateException("Released more slots than were claimed");
+			}
+			inFlight--;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Records a successful step or run, raising the limit by one per limit worth of successes.
+	 * The limit only grows while it's being used and the latency stays near the baseline.
+	 * 
+	 * @param latency The latency in nanoseconds, negative if unknown.
+	 */
+	public void onSuccess(long latency) {
+		lock.lock();
+		
+		try {
+			if (latency >= 0L) {
+				boolean slow = baseline > 0D && latency > baseline * LATENCY_TOLERANCE;
+				baseline = baseline == 0D ? latency : baseline + BASELINE_ALPHA * (latency - baseline);
+				
+				if (slow) {
+					return;
+				}
+			}
+			if (inFlight * 2 >= (int)limit) {
+				limit = Math.min(maxLimit, limit + 1D / limit);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Records a timeout or critical failure, cutting the limit multiplicatively.
+	 */
+	public void onDrop() {
+		lock.lock();
+		
+		try {
+			long now = System.nanoTime();
+			
+			if (now - lastDecrease < backoffWindow) {
+				return;
+			}
+			limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+			lastDecrease = now;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Retrieves the current limit.
+	 * 
+	 * @return The limit.
+	 */
+	public int getLimit() {
+		lock.lock();
+		
+		try {
+			return (int)limit;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Retrieves the amount of tasks using the proxy.
+	 * 
+	 * @return The amount.
+	 */
+	public int getInFlight() {
+		lock.lock();
+		
+		try {
+			return inFlight;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+}
@@ -0,0 +1,98 @@
+package com.nattguld.tasker.proxies;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.nattguld.http.proxies.HttpProxy;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public class AdaptiveProxyLimits {
+	
+	/**
+	 * The singleton instance.
+	 */
+	private static final AdaptiveProxyLimits singleton = new AdaptiveProxyLimits(1, 4, 256, 1L, TimeUnit.SECONDS);
+	
+	/**
+	 * The lowest limit.
+	 */
+	private final int minLimit;
+	
+	/**
+	 * The initial limit.
+	 */
+	private final int initialLimit;
+	
+	/**
+	 * The highest limit.
+	 */
+	private final int maxLimit;
+	
+	/**
+	 * The minimum time in nanoseconds between two decreases.
+	 */
+	private final long backoffWindow;
+	
+	/**
+	 * The limit per proxy UUID.
+	 */
+	private final Map<String, AdaptiveProxyLimit> limits;
+	
+	
+	/**
+	 * Creates a new adaptive proxy limit registry.
+	 * 
+	 * @param minLimit The lowest limit.
+	 * 
+	 * @param initialLimit The initial limit.
+	 * 
+	 * @param maxLimit The highest limit.
+	 * 
+	 * @param backoffWindow The minimum time between two decreases.
+	 * 
+	 * @param unit The time unit.
+	 */
+	public AdaptiveProxyLimits(int minLimit, int initialLimit, int maxLimit, long backoffWindow, TimeUnit unit) {
+		if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+			throw new IllegalArgumentException("Limits have to satisfy 1 <= min <= initial <= max");
+		}
+		this.minLimit = minLimit;
+		this.initialLimit = initialLimit;
+		this.maxLimit = maxLimit;
+		this.backoffWindow = unit.toNanos(backoffWindow);
+		this.limits = new ConcurrentHashMap<>();
+	}
+	
+	/**
+	 * Retrieves the limit of a proxy, creating it on first use.
+	 * 
+	 * @param proxy The proxy.
+	 * 
+	 * @return The limit.
+	 */
+	public AdaptiveProxyLimit getLimit(HttpProxy proxy) {
+		AdaptiveProxyLimit limit = limits.get(proxy.getUUID());
+		
+		if (Objects.nonNull(limit)) {
+			return limit;
+		}
+		return limits.computeIfAbsent(proxy.getUUID(), k -> new AdaptiveProxyLimit(minLimit, initialLimit, maxLimit, backoffWindow));
+	}
+	
+	/**
+	 * Retrieves the singleton instance.
+	 * 
+	 * @return The singleton instance.
+	 */
+	public static AdaptiveProxyLimits getSingleton() {
+		return singleton;
+	}
+
+}
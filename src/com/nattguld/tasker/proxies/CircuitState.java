@@ -0,0 +1,39 @@
+package com.nattguld.tasker.proxies;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public enum CircuitState {
+	
+	CLOSED("Closed"),
+	OPEN("Open"),
+	HALF_OPEN("Half open");
+	
+	/**
+	 * The name.
+	 */
+	private final String name;
+	
+	
+	/**
+	 * Creates a new circuit state.
+	 * 
+	 * @param name The name.
+	 */
+	private CircuitState(String name) {
+		this.name = name;
+	}
+	
+	/**
+	 * Retrieves the name.
+	 * 
+	 * @return The name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+}
@@ -0,0 +1,179 @@
+package com.nattguld.tasker.proxies;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public class ProxyCircuitBreaker {
+	
+	/**
+	 * The amount of consecutive failures that open the circuit.
+	 */
+	private final int failureThreshold;
+	
+	/**
+	 * The time in nanoseconds the circuit stays open before a probe is let through.
+	 */
+	private final long cooldown;
+	
+	/**
+	 * The state.
+	 */
+	private CircuitState state = CircuitState.CLOSED;
+	
+	/**
+	 * The amount of consecutive failures.
+	 */
+	private int failures;
+	
+	/**
+	 * The time the circuit opened or the probe was let through.
+	 */
+	private long since;
+	
+	/**
+	 * The holder of the probe while the circuit is half open.
+	 */
+	private Object probe;
+	
+	/**
+	 * Guards the state transitions.
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+	
+	
+	/**
+	 * Creates a new proxy circuit breaker.
+	 * 
+	 * @param failureThreshold The amount of consecutive failures that open the circuit.
+	 * 
+	 * @param cooldown The time in nanoseconds the circuit stays open before a probe is let through.
+	 */
+	ProxyCircuitBreaker(int failureThreshold, long cooldown) {
+		this.failureThreshold = failureThreshold;
+		this.cooldown = cooldown;
+	}
+	
+	/**
+	 * Retrieves whether a task would be let through or not, without claiming the probe.
+	 * 
+	 * @return The result.
+	 */
+	public boolean isAllowing() {
+		lock.lock();
+		
+		try {
+			return state == CircuitState.CLOSED || System.nanoTime() - since >= cooldown;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Lets a task through when the circuit is closed, or as the single probe once the cooldown passed.
+	 * A probe that never reports back is replaced after another cooldown.
+	 * 
+	 * @param holder The task acquiring, only the probe's holder closes a half open circuit.
+	 * 
+	 * @return Whether the task may use the proxy or not.
+	 */
+	public boolean tryAcquire(Object holder) {
+		lock.lock();
+		
+		try {
+			if (state == CircuitState.CLOSED) {
+				return true;
+			}
+			long now = System.nanoTime();
+			
+			if (now - since < cooldown) {
+				return false;
+			}
+			state = CircuitState.HALF_OPEN;
+			since = now;
+			probe = holder;
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Records a run that finished without a failure.
+	 * Only the probe's holder closes a half open circuit, successes of runs admitted before the circuit opened are ignored.
+	 * 
+	 * @param holder The task that finished.
+	 */
+	public void recordSuccess(Object holder) {
+		lock.lock();
+		
+		try {
+			if (state == CircuitState.OPEN || (state == CircuitState.HALF_OPEN && probe != holder)) {
+				return;
+			}
+			failures = 0;
+			state = CircuitState.CLOSED;
+			probe = null;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Records a critical failure, opening the circuit when the threshold is reached or the probe failed.
+	 */
+	public void recordFailure() {
+		lock.lock();
+		
+		try {
+			if (state == CircuitState.HALF_OPEN || ++failures >= failureThreshold) {
+				open();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Opens the circuit right away.
+	 */
+	public void trip() {
+		lock.lock();
+		
+		try {
+			open();
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Opens the circuit.
+	 */
+	private void open() {
+		state = CircuitState.OPEN;
+		since = System.nanoTime();
+		failures = 0;
+		probe = null;
+	}
+	
+	/**
+	 * Retrieves the state.
+	 * 
+	 * @return The state.
+	 */
+	public CircuitState getState() {
+		lock.lock();
+		
+		try {
+			return state;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+}
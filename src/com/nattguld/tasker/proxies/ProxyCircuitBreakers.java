@@ -0,0 +1,142 @@
+package com.nattguld.tasker.proxies;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.nattguld.http.proxies.HttpProxy;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public class ProxyCircuitBreakers {
+	
+	/**
+	 * The singleton instance.
+	 */
+	private static final ProxyCircuitBreakers singleton = new ProxyCircuitBreakers(3, 60L, TimeUnit.SECONDS);
+	
+	/**
+	 * The amount of consecutive failures that open a circuit.
+	 */
+	private final int failureThreshold;
+	
+	/**
+	 * The time in nanoseconds a circuit stays open before a probe is let through.
+	 */
+	private final long cooldown;
+	
+	/**
+	 * The circuit breaker per proxy UUID.
+	 */
+	private final Map<String, ProxyCircuitBreaker> breakers;
+	
+	
+	/**
+	 * Creates a new proxy circuit breaker registry.
+	 * 
+	 * @param failureThreshold The amount of consecutive failures that open a circuit.
+	 * 
+	 * @param cooldown The time a circuit stays open before a probe is let through.
+	 * 
+	 * @param unit The time unit.
+	 */
+	public ProxyCircuitBreakers(int failureThreshold, long cooldown, TimeUnit unit) {
+		this.failureThreshold = failureThreshold;
+		this.cooldown = unit.toNanos(cooldown);
+		this.breakers = new ConcurrentHashMap<>();
+	}
+	
+	/**
+	 * Retrieves the circuit breaker of a proxy, creating it on first use.
+	 * 
+	 * @param proxy The proxy.
+	 * 
+	 * @return The circuit breaker.
+	 */
+	public ProxyCircuitBreaker getBreaker(HttpProxy proxy) {
+		ProxyCircuitBreaker breaker = breakers.get(proxy.getUUID());
+		
+		if (Objects.nonNull(breaker)) {
+			return breaker;
+		}
+		return breakers.computeIfAbsent(proxy.getUUID(), k -> new ProxyCircuitBreaker(failureThreshold, cooldown));
+	}
+	
+	/**
+	 * Retrieves whether a task would be let through a proxy or not.
+	 * Only actual proxies are let through, direct and invalid connections are not.
+	 * 
+	 * @param proxy The proxy.
+	 * 
+	 * @return The result.
+	 */
+	public boolean isAllowing(HttpProxy proxy) {
+		if (!ProxyHealthRegistry.isScored(proxy)) {
+			return false;
+		}
+		ProxyCircuitBreaker breaker = breakers.get(proxy.getUUID());
+		return Objects.isNull(breaker) || breaker.isAllowing();
+	}
+	
+	/**
+	 * Lets a task through a proxy when it's circuit is closed or it's the probe.
+	 * 
+	 * @param proxy The proxy.
+	 * 
+	 * @param holder The task acquiring.
+	 * 
+	 * @return Whether the task may use the proxy or not.
+	 */
+	public boolean tryAcquire(HttpProxy proxy, Object holder) {
+		ProxyCircuitBreaker breaker = breakers.get(proxy.getUUID());
+		return Objects.isNull(breaker) || breaker.tryAcquire(holder);
+	}
+	
+	/**
+	 * Records a run through a proxy that finished without a failure.
+	 * 
+	 * @param proxy The proxy.
+	 * 
+	 * @param holder The task that finished.
+	 */
+	public void recordSuccess(HttpProxy proxy, Object holder) {
+		ProxyCircuitBreaker breaker = breakers.get(proxy.getUUID());
+		
+		if (Objects.nonNull(breaker)) {
+			breaker.recordSuccess(holder);
+		}
+	}
+	
+	/**
+	 * Records a critical failure on a proxy.
+	 * 
+	 * @param proxy The proxy.
+	 */
+	public void recordFailure(HttpProxy proxy) {
+		getBreaker(proxy).recordFailure();
+	}
+	
+	/**
+	 * Opens the circuit of a flagged proxy right away.
+	 * 
+	 * @param proxy The proxy.
+	 */
+	public void trip(HttpProxy proxy) {
+		getBreaker(proxy).trip();
+	}
+	
+	/**
+	 * Retrieves the singleton instance.
+	 * 
+	 * @return The singleton instance.
+	 */
+	public static ProxyCircuitBreakers getSingleton() {
+		return singleton;
+	}
+
+}
@@ -0,0 +1,185 @@
+package com.nattguld.tasker.proxies;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public class ProxyHealth {
+	
+	/**
+	 * The weight of a new sample in the moving averages.
+	 */
+	private static final double ALPHA = 0.2D;
+	
+	/**
+	 * The lowest success rate used when scoring, keeps failing proxies comparable.
+	 */
+	private static final double MIN_SUCCESS_RATE = 0.05D;
+	
+	/**
+	 * The moving average latency in milliseconds, 0 until sampled.
+	 */
+	private double latency;
+	
+	/**
+	 * The moving average connect failure rate.
+	 */
+	private double failureRate;
+	
+	/**
+	 * The moving average success rate of task runs.
+	 */
+	private double successRate = 1D;
+	
+	/**
+	 * The amount of samples recorded.
+	 */
+	private long samples;
+	
+	/**
+	 * Guards the moving averages, recorded by every task using the proxy.
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+	
+	
+	/**
+	 * Records a latency sample.
+	 * 
+	 * @param nanos The latency in nanoseconds.
+	 */
+	public void recordLatency(long nanos) {
+		lock.lock();
+		
+		try {
+			double millis = nanos / 1_000_000D;
+			latency = latency == 0D ? millis : latency + ALPHA * (millis - latency);
+			samples++;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Records whether a connection through the proxy succeeded or not.
+	 * 
+	 * @param failed Whether the connection failed or not.
+	 */
+	public void recordConnect(boolean failed) {
+		lock.lock();
+		
+		try {
+			failureRate += ALPHA * ((failed ? 1D : 0D) - failureRate);
+			samples++;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Records whether a task run through the proxy succeeded or not.
+	 * 
+	 * @param success Whether the run succeeded or not.
+	 */
+	public void recordOutcome(boolean success) {
+		lock.lock();
+		
+		try {
+			successRate += ALPHA * ((success ? 1D : 0D) - successRate);
+			samples++;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Retrieves the score of the proxy, the expected cost of a run through it.
+	 * Proxies without samples score best so they get tried.
+	 * 
+	 * @return The score, lower is healthier.
+	 */
+	public double getScore() {
+		lock.lock();
+		
+		try {
+			return (latency + 1D) * (1D + 4D * failureRate) / Math.max(successRate, MIN_SUCCESS_RATE);
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Retrieves the moving average latency.
+	 * 
+	 * @return The latency in milliseconds, 0 until sampled.
+	 */
+	public double getLatency() {
+		lock.lock();
+		
+		try {
+			return latency;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Retrieves the moving average connect failure rate.
+	 * 
+	 * @return The failure rate.
+	 */
+	public double getFailureRate() {
+		lock.lock();
+		
+		try {
+			return failureRate;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Retrieves the moving average success rate of task runs.
+	 * 
+	 * @return The success rate.
+	 */
+	public double getSuccessRate() {
+		lock.lock();
+		
+		try {
+			return successRate;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Retrieves the amount of samples recorded.
+	 * 
+	 * @return The amount.
+	 */
+	public long getSamples() {
+		lock.lock();
+		
+		try {
+			return samples;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	@Override
+	public String toString() {
+		lock.lock();
+		
+		try {
+			return "latency=" + Math.round(latency) + "ms, failureRate=" + failureRate + ", successRate=" + successRate;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+}
@@ -0,0 +1,94 @@
+package com.nattguld.tasker.proxies;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.nattguld.http.proxies.HttpProxy;
+import com.nattguld.http.proxies.ProxyManager;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public class ProxyHealthRegistry {
+	
+	/**
+	 * The singleton instance.
+	 */
+	private static final ProxyHealthRegistry singleton = new ProxyHealthRegistry();
+	
+	/**
+	 * The health per proxy UUID.
+	 */
+	private final Map<String, ProxyHealth> health = new ConcurrentHashMap<>();
+	
+	
+	/**
+	 * Retrieves the health of a proxy, creating it on first use.
+	 * 
+	 * @param proxy The proxy.
+	 * 
+	 * @return The health.
+	 */
+	public ProxyHealth getHealth(HttpProxy proxy) {
+		ProxyHealth proxyHealth = health.get(proxy.getUUID());
+		
+		if (Objects.nonNull(proxyHealth)) {
+			return proxyHealth;
+		}
+		return health.computeIfAbsent(proxy.getUUID(), k -> new ProxyHealth());
+	}
+	
+	/**
+	 * Picks the healthier of two candidate proxies.
+	 * 
+	 * @param first The first candidate.
+	 * 
+	 * @param second The second candidate.
+	 * 
+	 * @return The healthier proxy, or the first when the second is not usable.
+	 */
+	public HttpProxy choose(HttpProxy first, HttpProxy second) {
+		if (!isScored(second) || first == second) {
+			return first;
+		}
+		if (!isScored(first)) {
+			return second;
+		}
+		return getHealth(second).getScore() < getHealth(first).getScore() ? second : first;
+	}
+	
+	/**
+	 * Forgets the health of a proxy.
+	 * 
+	 * @param proxy The proxy.
+	 */
+	public void remove(HttpProxy proxy) {
+		health.remove(proxy.getUUID());
+	}
+	
+	/**
+	 * Retrieves whether a proxy is an actual proxy that can be scored or not.
+	 * 
+	 * @param proxy The proxy.
+	 * 
+	 * @return The result.
+	 */
+	public static boolean isScored(HttpProxy proxy) {
+		return Objects.nonNull(proxy) && proxy != ProxyManager.INVALID_PROXY 
+				&& proxy != ProxyManager.LOCALHOST && proxy != ProxyManager.FIDDLER_PROXY;
+	}
+	
+	/**
+	 * Retrieves the singleton instance.
+	 * 
+	 * @return The singleton instance.
+	 */
+	public static ProxyHealthRegistry getSingleton() {
+		return singleton;
+	}
+
+}
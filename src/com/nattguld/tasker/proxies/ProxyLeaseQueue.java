@@ -0,0 +1,206 @@
+package com.nattguld.tasker.proxies;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+import com.nattguld.http.proxies.HttpProxy;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public class ProxyLeaseQueue {
+	
+	/**
+	 * The singleton instance.
+	 */
+	private static final ProxyLeaseQueue singleton = new ProxyLeaseQueue();
+	
+	/**
+	 * The interval in nanoseconds at which waiting heads re-check admission without being woken.
+	 * Covers slots freed outside of the tasker.
+	 */
+	private static final long RECHECK_INTERVAL = TimeUnit.MILLISECONDS.toNanos(500);
+	
+	/**
+	 * The waiters per proxy UUID, only present while tasks wait for the proxy.
+	 */
+	private final Map<String, Waiters> waiters = new ConcurrentHashMap<>();
+	
+	
+	/**
+	 * Waits for a slot on a proxy in FIFO order.
+	 * Only the longest waiting task checks admission, it is woken when another task releases the proxy.
+	 * The waiters of a proxy are dropped once the last one leaves, so proxies nobody waits for hold no entry.
+	 * 
+	 * @param proxy The proxy.
+	 * 
+	 * @param timeout The maximum time to wait.
+	 * 
+	 * @param unit The time unit.
+	 * 
+	 * @param admission Checks whether the proxy accepts another user.
+	 * 
+	 * @return Whether a slot was obtained before the deadline or not.
+	 * 
+	 * @throws InterruptedException When interrupted while waiting.
+	 */
+	public boolean acquire(HttpProxy proxy, long timeout, TimeUnit unit, BooleanSupplier admission) throws InterruptedException {
+		String uuid = proxy.getUUID();
+		
+		if (!waiters.containsKey(uuid) && admission.getAsBoolean()) {
+			return true;
+		}
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		Waiters queue;
+		
+		while (true) {
+			queue = waiters.computeIfAbsent(uuid, k -> new Waiters());
+			queue.lock.lockInterruptibly();
+			
+			if (!queue.retired) {
+				break;
+			}
+			queue.lock.unlock();
+		}
+		try {
+			if (queue.conditions.isEmpty() && admission.getAsBoolean()) {
+				return true;
+			}
+			Condition condition = queue.lock.newCondition();
+			queue.conditions.addLast(condition);
+			
+			try {
+				while (true) {
+					if (queue.conditions.peekFirst() == condition && admission.getAsBoolean()) {
+						return true;
+					}
+					long remaining = deadline - System.nanoTime();
+					
+					if (remaining <= 0L) {
+						return false;
+					}
+					condition.awaitNanos(Math.min(remaining, RECHECK_INTERVAL));
+				}
+			} finally {
+				queue.conditions.remove(condition);
+				queue.signalHead();
+			}
+		} finally {
+			if (queue.conditions.isEmpty()) {
+				queue.retired = true;
+				waiters.remove(uuid, queue);
+			}
+			queue.lock.unlock();
+		}
+	}
+	
+	/**
+	 * Wakes the longest waiting task for a proxy after one of its users left.
+	 * Has to be called only once the user slot was actually freed, otherwise the woken task finds the proxy still full.
+	 * 
+	 * @param proxy The proxy.
+	 */
+	public void release(HttpProxy proxy) {
+		if (Objects.isNull(proxy)) {
+			return;
+		}
+		Waiters queue = waiters.get(proxy.getUUID());
+		
+		if (Objects.isNull(queue)) {
+			return;
+		}
+		queue.lock.lock();
+		
+		try {
+			queue.signalHead();
+		} finally {
+			queue.lock.unlock();
+		}
+	}
+	
+	/**
+	 * Retrieves the amount of tasks waiting for a proxy.
+	 * 
+	 * @param proxy The proxy.
+	 * 
+	 * @return The amount.
+	 */
+	public int getWaiting(HttpProxy proxy) {
+		Waiters queue = waiters.get(proxy.getUUID());
+		
+		if (Objects.isNull(queue)) {
+			return 0;
+		}
+		queue.lock.lock();
+		
+		try {
+			return queue.conditions.size();
+		} finally {
+			queue.lock.unlock();
+		}
+	}
+	
+	/**
+	 * Retrieves the amount of proxies tasks are waiting for.
+	 * 
+	 * @return The amount.
+	 */
+	public int getQueueCount() {
+		return waiters.size();
+	}
+	
+	/**
+	 * Retrieves the singleton instance.
+	 * 
+	 * @return The singleton instance.
+	 */
+	public static ProxyLeaseQueue getSingleton() {
+		return singleton;
+	}
+	
+	
+	/**
+	 * The tasks waiting for a single proxy.
+	 */
+	private static final class Waiters {
+		
+		/**
+		 * The lock guarding the queue.
+		 */
+		private final ReentrantLock lock = new ReentrantLock();
+		
+		/**
+		 * The conditions of the waiting tasks in arrival order.
+		 */
+		private final Deque<Condition> conditions = new ArrayDeque<>();
+		
+		/**
+		 * Whether the queue was dropped from the waiters or not, tasks that looked it up before have to look up the new one.
+		 */
+		private boolean retired;
+		
+		
+		/**
+		 * Signals the longest waiting task, the lock has to be held.
+		 */
+		private void signalHead() {
+			Condition head = conditions.peekFirst();
+			
+			if (Objects.nonNull(head)) {
+				head.signal();
+			}
+		}
+	
+	}
+
+}
@@ -0,0 +1,247 @@
+package com.nattguld.tasker.rates;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public class RateLimits {
+	
+	/**
+	 * The singleton instance.
+	 */
+	private static final RateLimits singleton = new RateLimits(10D, 10);
+	
+	/**
+	 * The key used for direct connections.
+	 */
+	private static final String DIRECT = "";
+	
+	/**
+	 * The minimum time in nanoseconds between two sweeps for full buckets.
+	 */
+	private static final long SWEEP_INTERVAL = TimeUnit.MINUTES.toNanos(1L);
+	
+	/**
+	 * The default rate per host and proxy.
+	 */
+	private volatile Rate defaultRate;
+	
+	/**
+	 * The rates per host overriding the default.
+	 */
+	private final Map<String, Rate> hostRates;
+	
+	/**
+	 * The buckets per host and proxy UUID.
+	 */
+	private final Map<String, Map<String, TokenBucket>> buckets;
+	
+	/**
+	 * The last time full buckets were dropped.
+	 */
+	private final AtomicLong lastSweep;
+	
+	
+	/**
+	 * Creates a new rate limit registry.
+	 * 
+	 * @param perSecond The default amount of requests per second per host and proxy.
+	 * 
+	 * @param burst The default maximum burst per host and proxy.
+	 */
+	public RateLimits(double perSecond, int burst) {
+		this.defaultRate = new Rate(perSecond, burst);
+		this.hostRates = new ConcurrentHashMap<>();
+		this.buckets = new ConcurrentHashMap<>();
+		this.lastSweep = new AtomicLong(System.nanoTime());
+	}
+	
+	/**
+	 * Takes a token for a request to a host through a proxy, parking until it becomes available.
+	 * 
+	 * @param host The target host.
+	 * 
+	 * @param proxyUUID The proxy UUID, null for direct connections.
+	 * 
+	 * @param timeout The maximum time to wait.
+	 * 
+	 * @param unit The time unit.
+	 * 
+	 * @return Whether a token was taken in time or not.
+	 * 
+	 * @throws InterruptedException When interrupted while waiting.
+	 */
+	public boolean acquire(String host, String proxyUUID, long timeout, TimeUnit unit) throws InterruptedException {
+		return getBucket(host, proxyUUID).acquire(timeout, unit);
+	}
+	
+	/**
+	 * Takes a token for a request to a host through a proxy if one is available right away.
+	 * 
+	 * @param host The target host.
+	 * 
+	 * @param proxyUUID The proxy UUID, null for direct connections.
+	 * 
+	 * @return Whether a token was taken or not.
+	 */
+	public boolean tryAcquire(String host, String proxyUUID) {
+		return getBucket(host, proxyUUID).tryAcquire();
+	}
+	
+	/**
+	 * Retrieves the bucket of a host and proxy, creating it on first use.
+	 * Every pair has it's own lock-free bucket so tasks only contend with tasks hitting the same host through the same proxy.
+	 * Creating a bucket drops the full ones at most once per sweep interval, so pairs that went quiet don't pile up.
+	 * 
+	 * @param host The target host.
+	 * 
+	 * @param proxyUUID The proxy UUID, null for direct connections.
+	 * 
+	 * @return The bucket.
+	 */
+	public TokenBucket getBucket(String host, String proxyUUID) {
+		String hostKey = host.toLowerCase(Locale.ROOT);
+		Map<String, TokenBucket> perProxy = buckets.get(hostKey);
+		
+		if (Objects.isNull(perProxy)) {
+			perProxy = buckets.computeIfAbsent(hostKey, k -> new ConcurrentHashMap<>());
+		}
+		String proxyKey = Objects.isNull(proxyUUID) ? DIRECT : proxyUUID;
+		TokenBucket bucket = perProxy.get(proxyKey);
+		
+		if (Objects.nonNull(bucket)) {
+			return bucket;
+		}
+		long now = System.nanoTime();
+		long last = lastSweep.get();
+		
+		if (now - last >= SWEEP_INTERVAL && lastSweep.compareAndSet(last, now)) {
+			evictIdle();
+		}
+		return perProxy.computeIfAbsent(proxyKey, k -> getRate(hostKey).newBucket());
+	}
+	
+	/**
+	 * Drops the full buckets and the hosts left without buckets.
+	 * A full bucket is recreated full on next use, a task still holding a dropped bucket may get one request beyond the burst.
+	 */
+	public void evictIdle() {
+		for (Map.Entry<String, Map<String, TokenBucket>> entry : buckets.entrySet()) {
+			entry.getValue().values().removeIf(TokenBucket::isFull);
+			
+			if (entry.getValue().isEmpty()) {
+				buckets.computeIfPresent(entry.getKey(), (k, perProxy) -> perProxy.isEmpty() ? null : perProxy);
+			}
+		}
+	}
+	
+	/**
+	 * Retrieves the amount of hosts holding buckets.
+	 * 
+	 * @return The amount.
+	 */
+	public int getHostCount() {
+		return buckets.size();
+	}
+	
+	/**
+	 * Modifies the rate of a host, applied to every proxy from the next request on.
+	 * 
+	 * @param host The target host.
+	 * 
+	 * @param perSecond The amount of requests per second per proxy.
+	 * 
+	 * @param burst The maximum burst per proxy.
+	 */
+	public void setRate(String host, double perSecond, int burst) {
+		String hostKey = host.toLowerCase(Locale.ROOT);
+		hostRates.put(hostKey, new Rate(perSecond, burst));
+		buckets.remove(hostKey);
+	}
+	
+	/**
+	 * Modifies the default rate, applied to hosts without their own rate from the next request on.
+	 * 
+	 * @param perSecond The amount of requests per second per host and proxy.
+	 * 
+	 * @param burst The maximum burst per host and proxy.
+	 */
+	public void setDefaultRate(double perSecond, int burst) {
+		defaultRate = new Rate(perSecond, burst);
+		buckets.keySet().removeIf(host -> !hostRates.containsKey(host));
+	}
+	
+	/**
+	 * Retrieves the rate of a host.
+	 * 
+	 * @param hostKey The lower case host.
+	 * 
+	 * @return The rate.
+	 */
+	private Rate getRate(String hostKey) {
+		Rate rate = hostRates.get(hostKey);
+		return Objects.isNull(rate) ? defaultRate : rate;
+	}
+	
+	/**
+	 * Retrieves the singleton instance.
+	 * 
+	 * @return The singleton instance.
+	 */
+	public static RateLimits getSingleton() {
+		return singleton;
+	}
+	
+	
+	/**
+	 * A request rate.
+	 */
+	private static final class Rate {
+		
+		/**
+		 * The amount of requests per second.
+		 */
+		private final double perSecond;
+		
+		/**
+		 * The maximum burst.
+		 */
+		private final int burst;
+		
+		
+		/**
+		 * Creates a new rate.
+		 * 
+		 * @param perSecond The amount of requests per second.
+		 * 
+		 * @param burst The maximum burst.
+		 */
+		private Rate(double perSecond, int burst) {
+			if (perSecond <= 0D || burst < 1) {
+				throw new IllegalArgumentException("Rate and burst have to be positive");
+			}
+			this.perSecond = perSecond;
+			this.burst = burst;
+		}
+		
+		/**
+		 * Creates a bucket for this rate.
+		 * 
+		 * @return The bucket.
+		 */
+		private TokenBucket newBucket() {
+			return new TokenBucket(perSecond, burst);
+		}
+	
+	}
+
+}
@@ -0,0 +1,119 @@
+package com.nattguld.tasker.rates;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public class TokenBucket {
+	
+	/**
+	 * The time in nanoseconds it takes to refill a token.
+	 */
+	private final long interval;
+	
+	/**
+	 * The time in nanoseconds a full bucket is ahead of schedule, the burst minus one token.
+	 */
+	private final long tolerance;
+	
+	/**
+	 * The time at which the bucket is empty again when nothing else is taken.
+	 * A token is available as long as this lies within the tolerance from now.
+	 */
+	private final AtomicLong emptyAt;
+	
+	
+	/**
+	 * Creates a new token bucket.
+	 * 
+	 * @param perSecond The amount of tokens refilled per second.
+	 * 
+	 * @param burst The maximum amount of tokens.
+	 */
+	public TokenBucket(double perSecond, int burst) {
+		if (perSecond <= 0D || burst < 1) {
+			throw new IllegalArgumentException("Rate and burst have to be positive");
+		}
+		this.interval = Math.max(1L, (long)(TimeUnit.SECONDS.toNanos(1L) / perSecond));
+		this.tolerance = interval * (burst - 1);
+		this.emptyAt = new AtomicLong(System.nanoTime() - interval * burst);
+	}
+	
+	/**
+	 * Takes a token if one is available right away.
+	 * 
+	 * @return Whether a token was taken or not.
+	 */
+	public boolean tryAcquire() {
+		return reserve(0L) == 0L;
+	}
+	
+	/**
+	 * Takes a token, parking the calling thread until it becomes available.
+	 * 
+	 * @param timeout The maximum time to wait.
+	 * 
+	 * @param unit The time unit.
+	 * 
+	 * @return Whether a token was taken or not, no token is taken when it would not be available in time.
+	 * 
+	 * @throws InterruptedException When interrupted while waiting, the token is consumed regardless.
+	 */
+	public boolean acquire(long timeout, TimeUnit unit) throws InterruptedException {
+		long wait = reserve(unit.toNanos(timeout));
+		
+		if (wait < 0L) {
+			return false;
+		}
+		long deadline = System.nanoTime() + wait;
+		
+		while (wait > 0L) {
+			LockSupport.parkNanos(this, wait);
+			
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+			wait = deadline - System.nanoTime();
+		}
+		return true;
+	}
+	
+	/**
+	 * Retrieves whether the bucket is full or not, a full bucket behaves like a new one.
+	 * 
+	 * @return The result.
+	 */
+	public boolean isFull() {
+		return emptyAt.get() - System.nanoTime() <= 0L;
+	}
+	
+	/**
+	 * Reserves the next token.
+	 * 
+	 * @param maxWait The maximum time in nanoseconds the token may lie ahead.
+	 * 
+	 * @return The time in nanoseconds until the token is available, -1 when it lies too far ahead.
+	 */
+	private long reserve(long maxWait) {
+		while (true) {
+			long now = System.nanoTime();
+			long current = emptyAt.get();
+			long start = current - now > 0L ? current : now;
+			long wait = start - tolerance - now;
+			
+			if (wait > maxWait) {
+				return -1L;
+			}
+			if (emptyAt.compareAndSet(current, start + interval)) {
+				return Math.max(0L, wait);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,235 @@
+package com.nattguld.tasker.recording;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+final class FlightRecorderBridge {
+	
+	/**
+	 * The field index of the task identifier.
+	 */
+	static final int TASK = 0;
+	
+	/**
+	 * The field index of the proxy UUID.
+	 */
+	static final int PROXY = 1;
+	
+	/**
+	 * The field index of the detail.
+	 */
+	static final int DETAIL = 2;
+	
+	/**
+	 * The field index of the count.
+	 */
+	static final int COUNT = 3;
+	
+	/**
+	 * The bridge, null when the runtime has no flight recorder.
+	 */
+	private static final FlightRecorderBridge singleton = load();
+	
+	/**
+	 * The event factory per recording type.
+	 */
+	private final Object[] factories;
+	
+	/**
+	 * An idle event per recording type, used to check whether the type is enabled without creating events.
+	 */
+	private final Object[] probes;
+	
+	/**
+	 * Creates a new event from a factory.
+	 */
+	private final MethodHandle newEvent;
+	
+	/**
+	 * Retrieves whether an event type is enabled.
+	 */
+	private final MethodHandle isEnabled;
+	
+	/**
+	 * Starts timing an event.
+	 */
+	private final MethodHandle begin;
+	
+	/**
+	 * Stops timing an event.
+	 */
+	private final MethodHandle end;
+	
+	/**
+	 * Retrieves whether an event passes the recording thresholds.
+	 */
+	private final MethodHandle shouldCommit;
+	
+	/**
+	 * Sets a field of an event.
+	 */
+	private final MethodHandle set;
+	
+	/**
+	 * Writes an event to the recording.
+	 */
+	private final MethodHandle commit;
+	
+	
+	/**
+	 * Creates a new flight recorder bridge, registering an event type per recording type.
+	 * The event methods are bound to method handles once, typed to plain objects so they're invoked exactly.
+	 * 
+	 * @throws ReflectiveOperationException When the flight recorder API is not available.
+	 */
+	@SuppressWarnings("unchecked")
+	private FlightRecorderBridge() throws ReflectiveOperationException {
+		Class<?> factoryClass = Class.forName("jdk.jfr.EventFactory");
+		Class<?> eventClass = Class.forName("jdk.jfr.Event");
+		Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement");
+		Class<?> valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor");
+		Class<? extends Annotation> nameClass = (Class<? extends Annotation>)Class.forName("jdk.jfr.Name");
+		Class<? extends Annotation> labelClass = (Class<? extends Annotation>)Class.forName("jdk.jfr.Label");
+		Class<? extends Annotation> descriptionClass = (Class<? extends Annotation>)Class.forName("jdk.jfr.Description");
+		Class<? extends Annotation> categoryClass = (Class<? extends Annotation>)Class.forName("jdk.jfr.Category");
+		Class<? extends Annotation> stackTraceClass = (Class<? extends Annotation>)Class.forName("jdk.jfr.StackTrace");
+		
+		Constructor<?> annotation = annotationElementClass.getConstructor(Class.class, Object.class);
+		Constructor<?> field = valueDescriptorClass.getConstructor(Class.class, String.class, List.class);
+		Method create = factoryClass.getMethod("create", List.class, List.class);
+		
+		List<Object> fields = Arrays.asList(
+				field.newInstance(String.class, "task", Collections.singletonList(annotation.newInstance(labelClass, "Task"))),
+				field.newInstance(String.class, "proxy", Collections.singletonList(annotation.newInstance(labelClass, "Proxy"))),
+				field.newInstance(String.class, "detail", Collections.singletonList(annotation.newInstance(labelClass, "Detail"))),
+				field.newInstance(long.class, "count", Collections.singletonList(annotation.newInstance(labelClass, "Count"))));
+		
+		this.factories = new Object[RecordingType.values().length];
+		this.probes = new Object[factories.length];
+		Method newEventMethod = factoryClass.getMethod("newEvent");
+		
+		for (RecordingType type : RecordingType.values()) {
+			List<Object> annotations = new ArrayList<>();
+			annotations.add(annotation.newInstance(nameClass, type.getName()));
+			annotations.add(annotation.newInstance(labelClass, type.getLabel()));
+			annotations.add(annotation.newInstance(descriptionClass, type.getDescription()));
+			annotations.add(annotation.newInstance(categoryClass, new String[] {"Nattguld", "Tasker"}));
+			annotations.add(annotation.newInstance(stackTraceClass, false));
+			factories[type.ordinal()] = create.invoke(null, annotations, fields);
+			probes[type.ordinal()] = newEventMethod.invoke(factories[type.ordinal()]);
+		}
+		MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+		
+		this.newEvent = bind(lookup, newEventMethod, MethodType.methodType(Object.class, Object.class));
+		this.isEnabled = bind(lookup, eventClass.getMethod("isEnabled"), MethodType.methodType(boolean.class, Object.class));
+		this.begin = bind(lookup, eventClass.getMethod("begin"), MethodType.methodType(void.class, Object.class));
+		this.end = bind(lookup, eventClass.getMethod("end"), MethodType.methodType(void.class, Object.class));
+		this.shouldCommit = bind(lookup, eventClass.getMethod("shouldCommit"), MethodType.methodType(boolean.class, Object.class));
+		this.set = bind(lookup, eventClass.getMethod("set", int.class, Object.class), MethodType.methodType(void.class, Object.class, int.class, Object.class));
+		this.commit = bind(lookup, eventClass.getMethod("commit"), MethodType.methodType(void.class, Object.class));
+	}
+	
+	/**
+	 * Creates and starts timing an event.
+	 * 
+	 * @param type The recording type.
+	 * 
+	 * @return The event, null when the type is not being recorded.
+	 */
+	Object begin(RecordingType type) {
+		try {
+			if (!(boolean)isEnabled.invokeExact(probes[type.ordinal()])) {
+				return null;
+			}
+			Object event = (Object)newEvent.invokeExact(factories[type.ordinal()]);
+			begin.invokeExact(event);
+			return event;
+		} catch (Error ex) {
+			throw ex;
+		} catch (Throwable ex) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Stops timing an event and writes it to the recording when it passes the thresholds.
+	 * 
+	 * @param event The event.
+	 * 
+	 * @param values The field values.
+	 */
+	void commit(Object event, Object... values) {
+		try {
+			end.invokeExact(event);
+			
+			if (!(boolean)shouldCommit.invokeExact(event)) {
+				return;
+			}
+			for (int i = 0; i < values.length; i++) {
+				if (Objects.nonNull(values[i])) {
+					set.invokeExact(event, i, values[i]);
+				}
+			}
+			commit.invokeExact(event);
+		} catch (Error ex) {
+			throw ex;
+		} catch (Throwable ex) {
+			//The event is lost, recording continues
+		}
+	}
+	
+	/**
+	 * Binds a method to a method handle of the given type.
+	 * 
+	 * @param lookup The lookup.
+	 * 
+	 * @param method The method.
+	 * 
+	 * @param type The handle type.
+	 * 
+	 * @return The method handle.
+	 * 
+	 * @throws IllegalAccessException When the method is not accessible.
+	 */
+	private static MethodHandle bind(MethodHandles.Lookup lookup, Method method, MethodType type) throws IllegalAccessException {
+		return lookup.unreflect(method).asType(type);
+	}
+	
+	/**
+	 * Loads the bridge.
+	 * 
+	 * @return The bridge, null when the runtime has no flight recorder.
+	 */
+	private static FlightRecorderBridge load() {
+		try {
+			return new FlightRecorderBridge();
+		} catch (ReflectiveOperationException | RuntimeException | LinkageError ex) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Retrieves the bridge.
+	 * 
+	 * @return The bridge, null when the runtime has no flight recorder.
+	 */
+	static FlightRecorderBridge getSingleton() {
+		return singleton;
+	}
+
+}
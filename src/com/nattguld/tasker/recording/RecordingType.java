@@ -0,0 +1,82 @@
+package com.nattguld.tasker.recording;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public enum RecordingType {
+	
+	CLIENT_BUILD("ClientBuild", "Client Build", "Building the client of a task"),
+	PROXY_ACQUIRE("ProxyAcquire", "Proxy Acquire", "Waiting for a slot on the proxy of a task"),
+	PROXY_RELEASE("ProxyRelease", "Proxy Release", "Releasing the proxy slot of a task"),
+	FLAGGED_PROXY("FlaggedProxy", "Flagged Proxy", "A flagged proxy was handed to a task"),
+	COOKIE_IMPORT("CookieImport", "Cookie Import", "Importing the session cookies into the client"),
+	COOKIE_EXPORT("CookieExport", "Cookie Export", "Writing the client cookies back to the session"),
+	DISPOSE_CLIENT("DisposeClient", "Dispose Client", "Disposing the client of a task");
+	
+	/**
+	 * The event name prefix.
+	 */
+	private static final String PREFIX = "com.nattguld.tasker.";
+	
+	/**
+	 * The event name.
+	 */
+	private final String name;
+	
+	/**
+	 * The event label.
+	 */
+	private final String label;
+	
+	/**
+	 * The event description.
+	 */
+	private final String description;
+	
+	
+	/**
+	 * Creates a new recording type.
+	 * 
+	 * @param name The event name.
+	 * 
+	 * @param label The event label.
+	 * 
+	 * @param description The event description.
+	 */
+	private RecordingType(String name, String label, String description) {
+		this.name = PREFIX + name;
+		this.label = label;
+		this.description = description;
+	}
+	
+	/**
+	 * Retrieves the event name.
+	 * 
+	 * @return The event name.
+	 */
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * Retrieves the event label.
+	 * 
+	 * @return The event label.
+	 */
+	public String getLabel() {
+		return label;
+	}
+	
+	/**
+	 * Retrieves the event description.
+	 * 
+	 * @return The event description.
+	 */
+	public String getDescription() {
+		return description;
+	}
+
+}
@@ -0,0 +1,98 @@
+package com.nattguld.tasker.recording;
+
+import java.util.Objects;
+
+/**
+ * 
+ * @author randqm
+ *
+ */
+
+public final class TaskRecording {
+	
+	/**
+	 * The recording used when the event type is not being recorded.
+	 */
+	private static final TaskRecording NONE = new TaskRecording(null);
+	
+	/**
+	 * The flight recorder event, null when not recording.
+	 */
+	private final Object event;
+	
+	
+	/**
+	 * Creates a new task recording.
+	 * 
+	 * @param event The flight recorder event, null when not recording.
+	 */
+	private TaskRecording(Object event) {
+		this.event = event;
+	}
+	
+	/**
+	 * Writes the event to the flight recording.
+	 * 
+	 * @param task The task identifier.
+	 * 
+	 * @param proxy The proxy UUID, null if none.
+	 */
+	public void commit(String task, String proxy) {
+		commit(task, proxy, null, 0L);
+	}
+	
+	/**
+	 * Writes the event to the flight recording.
+	 * 
+	 * @param task The task identifier.
+	 * 
+	 * @param proxy The proxy UUID, null if none.
+	 * 
+	 * @param detail The detail, null if none.
+	 * 
+	 * @param count The count.
+	 */
+	public void commit(String task, String proxy, String detail, long count) {
+		if (Objects.isNull(event)) {
+			return;
+		}
+		FlightRecorderBridge.getSingleton().commit(event, task, proxy, detail, count);
+	}
+	
+	/**
+	 * Retrieves whether the event is being recorded or not.
+	 * 
+	 * @return The result.
+	 */
+	public boolean isRecording() {
+		return Objects.nonNull(event);
+	}
+	
+	/**
+	 * Starts timing an event.
+	 * Costs nothing beyond a null check on runtimes without a flight recorder.
+	 * 
+	 * @param type The recording type.
+	 * 
+	 * @return The recording.
+	 */
+	public static TaskRecording begin(RecordingType type) {
+		FlightRecorderBridge bridge = FlightRecorderBridge.getSingleton();
+		
+		if (Objects.isNull(bridge)) {
+			return NONE;
+		}
+		Object event = bridge.begin(type);
+		return Objects.isNull(event) ? NONE : new TaskRecording(event);
+	}
+	
+	/**
+	 * Retrieves whether the runtime has a flight recorder or not.
+	 * 
+	 * @return The result.
+	 */
+	public static boolean isAvailable() {
+		return Objects.nonNull(FlightRecorderBridge.getSingleton());
+	}
+
+}
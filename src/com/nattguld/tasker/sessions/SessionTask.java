@@ -1,15 +1,22 @@
 package com.nattguld.tasker.sessions;
 
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 import com.nattguld.http.ISession;
+import com.nattguld.http.SessionCookies;
+import com.nattguld.http.SessionData;
+import com.nattguld.http.SessionLease;
+import com.nattguld.http.SessionValidity;
 import com.nattguld.http.browser.Browser;
 import com.nattguld.http.cfg.ProxyPolicy;
-import com.nattguld.http.cfg.SessionConfig;
+import com.nattguld.http.cfg.PolicySnapshot;
 import com.nattguld.http.proxies.ProxyManager;
 import com.nattguld.http.proxies.cfg.ProxyChoice;
-import com.nattguld.http.proxies.cfg.ProxyConfig;
 import com.nattguld.tasker.NetStepTask;
+import com.nattguld.tasker.events.TaskEventType;
+import com.nattguld.tasker.recording.RecordingType;
+import com.nattguld.tasker.recording.TaskRecording;
 import com.nattguld.tasker.steps.Step;
 
 /**
@@ -29,7 +36,17 @@ public abstract class SessionTask<S extends ISession> extends NetStepTask {
 	 * The proxy choice.
 	 */
 	private ProxyChoice proxyChoice;
-
+	
+	/**
+	 * The session cookies the client imported, merged with the client's cookies on dispose.
+	 */
+	private SessionCookies.Snapshot importedCookies;
+	
+	/**
+	 * The exclusive lease on the session, null when sharing it.
+	 */
+	private SessionLease lease;
+	
 	
 	/**
 	 * Creates a new task.
@@ -50,19 +67,39 @@ public abstract class SessionTask<S extends ISession> extends NetStepTask {
 		setProxyChoice(proxyChoice);
 	}
 	
+	@Override
+	protected void onFinish() {
+		if (isRunStarted()) {
+			SessionData sessionData = getSession().getSessionData();
+			sessionData.setValidity(sessionData.getValidity().finished(isRunFailed() ? SessionValidity.Outcome.FAILED : SessionValidity.Outcome.SUCCESS));
+		}
+		super.onFinish();
+		
+		if (Objects.nonNull(lease)) {
+			lease.close();
+			lease = null;
+		}
+	}
+	
 	@Override
 	protected boolean buildClient() {
+		if (!acquireLease()) {
+			publishEvent(TaskEventType.SESSION_LEASE_TIMEOUT, null);
+			return false;
+		}
 		if (!session.getSessionData().hasProxy()) {
-			if (SessionConfig.getConfig().getProxyPolicy() == ProxyPolicy.ASSIGNED_ONLY) {
-				System.err.println("No proxy assigned to session while proxy policy requires one.");
+			PolicySnapshot policy = getPolicy();
+			
+			if (policy.getProxyPolicy() == ProxyPolicy.ASSIGNED_ONLY) {
+				publishEvent(TaskEventType.PROXY_REQUIRED, null);
 				return false;
 			}
-			if (proxyChoice == ProxyChoice.DIRECT && SessionConfig.getConfig().getProxyPolicy() != ProxyPolicy.ANY
-					&& !ProxyConfig.getConfig().isCellularMode()) {
-				System.err.println("The current proxy policy does not allow a direct session connection.");
+			if (proxyChoice == ProxyChoice.DIRECT && policy.getProxyPolicy() != ProxyPolicy.ANY
+					&& !policy.isCellularMode()) {
+				publishEvent(TaskEventType.DIRECT_NOT_ALLOWED, null);
 				return false;
 			}
-			if (SessionConfig.getConfig().getProxyPolicy() == ProxyPolicy.ANY) {
+			if (policy.getProxyPolicy() == ProxyPolicy.ANY) {
 				proxyChoice = ProxyChoice.DIRECT;
 			}
 		}
@@ -71,7 +108,10 @@ public abstract class SessionTask<S extends ISession> extends NetStepTask {
 		if (!built) {
 			return false;
 		}
-		getClient().getCookieJar().importCookies(getSession().getSessionData().getCookies());
+		TaskRecording recording = TaskRecording.begin(RecordingType.COOKIE_IMPORT);
+		importedCookies = getSession().getSessionData().getSessionCookies().snapshot();
+		getClient().getCookieJar().importCookies(importedCookies.getCookies());
+		recording.commit(getIdentifier(), getSession().getSessionData().getProxyUUID(), null, importedCookies.getCookies().size());
 		getClient().getRequestExecutor().setLastReferer(getSession().getSessionData().getLastReferer());
 		return true;
 	}
@@ -89,12 +129,35 @@ public abstract class SessionTask<S extends ISession> extends NetStepTask {
 	}
 	
 	/**
-	 * Disposes the session.
+	 * Acquires the exclusive lease on the session when the task requires one.
+	 * 
+	 * @return Whether the task may use the session or not.
+	 */
+	private boolean acquireLease() {
+		if (getSessionLeaseTimeout() <= 0L || Objects.nonNull(lease)) {
+			return true;
+		}
+		try {
+			lease = session.getSessionData().tryLease(getSessionLeaseTimeout(), TimeUnit.MILLISECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		return Objects.nonNull(lease);
+	}
+	
+	/**
+	 * Disposes the session, writing back only the cookies the client added, changed or dropped.
+	 * Changes are merged against the cookies the client imported, so tasks sharing the session don't undo each other's changes.
 	 */
 	protected void disposeSession() {
 		if (Objects.nonNull(getClient())) {
-			session.getSessionData().getCookies().clear();
-			session.getSessionData().getCookies().addAll(getClient().getCookieJar().getCookies());
+			TaskRecording recording = TaskRecording.begin(RecordingType.COOKIE_EXPORT);
+			SessionCookies cookies = session.getSessionData().getSessionCookies();
+			boolean changed = Objects.isNull(importedCookies) 
+					? cookies.sync(getClient().getCookieJar().getCookies()) 
+					: cookies.merge(importedCookies, getClient().getCookieJar().getCookies());
+			importedCookies = null;
+			recording.commit(getIdentifier(), session.getSessionData().getProxyUUID(), changed ? "Changed" : "Unchanged", session.getSessionData().getCookies().size());
 			session.getSessionData().setLastReferer(getClient().getRequestExecutor().getLastReferer());
 		}
 	}
@@ -106,6 +169,14 @@ public abstract class SessionTask<S extends ISession> extends NetStepTask {
 		super.disposeClient();
 	}
 	
+	@Override
+	protected void onException(Step step, Exception ex) {
+		if (step.isCritical()) {
+			getSession().getSessionData().invalidate();
+		}
+		super.onException(step, ex);
+	}
+	
 	@Override
 	protected void onStepFail(Step step) {
 		super.onStepFail(step);
@@ -121,6 +192,43 @@ public abstract class SessionTask<S extends ISession> extends NetStepTask {
 	protected void resetSession() {
 		getSession().getSessionData().getCookies().clear();
 		getSession().getSessionData().setLastReferer(null);
+		getSession().getSessionData().invalidate();
+	}
+	
+	/**
+	 * Retrieves whether the session was recently verified to be logged in, e.g. to skip authentication steps.
+	 * 
+	 * @return The result.
+	 */
+	protected boolean isSessionValid() {
+		return getSession().getSessionData().getValidity().isValid(getValidityMaxAge());
+	}
+	
+	/**
+	 * Marks the session as verified to be logged in, e.g. after logging in or a request that requires it.
+	 */
+	protected void markSessionVerified() {
+		SessionData sessionData = getSession().getSessionData();
+		sessionData.setValidity(sessionData.getValidity().verified(getEarliestCookieExpiry()));
+	}
+	
+	/**
+	 * Retrieves the time the earliest cookie the session relies on expires.
+	 * The cookie type doesn't expose it's expiry, override when the expiry of the login cookies is known.
+	 * 
+	 * @return The time in milliseconds since the epoch, 0 if unknown.
+	 */
+	protected long getEarliestCookieExpiry() {
+		return 0L;
+	}
+	
+	/**
+	 * Retrieves how long a verified session is trusted without verifying it again.
+	 * 
+	 * @return The max. age in milliseconds.
+	 */
+	protected long getValidityMaxAge() {
+		return TimeUnit.MINUTES.toMillis(30L);
 	}
 	
 	@Override
@@ -153,6 +261,20 @@ public abstract class SessionTask<S extends ISession> extends NetStepTask {
 		return session;
 	}
 	
+	/**
+	 * Retrieves how long to wait for an exclusive lease on the session.
+	 * 
+	 * @return The timeout in milliseconds, 0 to share the session with other tasks.
+	 */
+	protected long getSessionLeaseTimeout() {
+		return 0L;
+	}
+	
+	@Override
+	protected boolean canPrewarm() {
+		return getSession().getSessionData().hasProxy();
+	}
+	
 	@Override
 	protected boolean isUniqueProxyUser() {
 		return true;
@@ -166,7 +288,7 @@ public abstract class SessionTask<S extends ISession> extends NetStepTask {
 	 * @return The proxy choice.
 	 */
 	private static ProxyChoice getProxyChoice(ProxyChoice original) {
-		if (ProxyConfig.getConfig().isCellularMode()) {
+		if (PolicySnapshot.getSnapshot().isCellularMode()) {
 			return ProxyChoice.DIRECT;
 		}
 		return Objects.isNull(original) ? ProxyManager.findBestChoice() : original;